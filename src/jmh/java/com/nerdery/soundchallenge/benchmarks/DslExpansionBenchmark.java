@@ -0,0 +1,68 @@
+package com.nerdery.soundchallenge.benchmarks;
+
+import com.nerdery.soundchallenge.services.midigenerators.SuperMarioMidiGenerator;
+import com.nerdery.soundchallenge.services.midigenerators.dsl.NoteTable;
+import com.nerdery.soundchallenge.services.midigenerators.dsl.Run;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures expanding the DSL runs that make up {@link SuperMarioMidiGenerator} into note events, without any MIDI
+ * encoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DslExpansionBenchmark {
+
+    @Param({"intro", "aSection", "bSection", "cSection", "dSection", "percussionABSection", "aSection repeat 2"})
+    public String section;
+
+    private Run run;
+
+    @Setup
+    public void setUp() {
+        SuperMarioMidiGenerator generator = new SuperMarioMidiGenerator();
+        switch (section) {
+            case "intro":
+                run = generator.intro();
+                break;
+            case "aSection":
+                run = generator.aSection();
+                break;
+            case "bSection":
+                run = generator.bSection();
+                break;
+            case "cSection":
+                run = generator.cSection();
+                break;
+            case "dSection":
+                run = generator.dSection();
+                break;
+            case "percussionABSection":
+                run = generator.percussionABSection();
+                break;
+            case "aSection repeat 2":
+                run = generator.aSection().repeat(2);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown section: " + section);
+        }
+    }
+
+    @Benchmark
+    public Object expand() {
+        return run.expand(0);
+    }
+
+    @Benchmark
+    public NoteTable compile() {
+        return NoteTable.compile(run);
+    }
+
+    @Benchmark
+    public long length() {
+        return run.length();
+    }
+}
@@ -0,0 +1,38 @@
+package com.nerdery.soundchallenge.benchmarks;
+
+import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.midi.InvalidMidiDataException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MidiGenerator#generateSong} for each generator, which is the uncached cost of
+ * {@code /midi/{name}.mid}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+    @Param({"demo", "steve vai pentatonic licks", "mario", "jmullinSuperMario"})
+    public String generatorName;
+
+    private MidiGenerator generator;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        generator = Generators.create(generatorName);
+        outputStream = new ByteArrayOutputStream(1 << 16);
+    }
+
+    @Benchmark
+    public int generateSong() throws IOException, InvalidMidiDataException {
+        outputStream.reset();
+        generator.generateSong(outputStream);
+        return outputStream.size();
+    }
+}
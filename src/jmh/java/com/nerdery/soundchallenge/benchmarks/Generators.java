@@ -0,0 +1,27 @@
+package com.nerdery.soundchallenge.benchmarks;
+
+import com.nerdery.soundchallenge.services.midigenerators.*;
+
+/**
+ * Builds the MIDI generator beans the same way the application context does, for use outside of Spring.
+ */
+final class Generators {
+
+    private Generators() {
+    }
+
+    static MidiGenerator create(String name) {
+        switch (name) {
+            case "demo":
+                return new DemoGenerator();
+            case "steve vai pentatonic licks":
+                return new JasonGenerator();
+            case "mario":
+                return new MarioGenerator();
+            case "jmullinSuperMario":
+                return new SuperMarioMidiGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown generator: " + name);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.nerdery.soundchallenge.benchmarks;
+
+import com.nerdery.soundchallenge.NerdSoundChallengeApplication;
+import com.nerdery.soundchallenge.metrics.LatencyHistogram;
+import com.nerdery.soundchallenge.services.MidiService;
+import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the application with concurrent clients on localhost and reports how it held up: throughput, latency
+ * percentiles, error rate and GC pauses. Run by the {@code loadTest} task, e.g.
+ * {@code gradle loadTest -PloadTestArgs="--clients=16 --rate=400 --seconds=60"}, so that builds can be compared
+ * before they are deployed.
+ *
+ * The application is started in this JVM on a random port. By default the clients request {@code /}, every
+ * generator's MIDI file and, less often, its audio; {@code --mix} sets the paths and their weights instead, as in
+ * {@code --mix=/midi/mario.mid:8,/audio/mario.wav:1}. Any other {@code --name=value} argument is set as a system
+ * property for the application, so {@code --nerdsound.store.directory=} runs it without its render store.
+ *
+ * Requests are sent on a fixed schedule of {@code --rate} a second, spread over the clients, and each request's
+ * latency is measured from when it was due to be sent, not from when a client got around to sending it. A server
+ * that stalls therefore shows up in the percentiles as the wait of every request queued behind the stall, rather
+ * than as one slow request, which is the coordinated omission correction of wrk2 and HdrHistogram. Requests a client
+ * was too far behind to send before the test ended are reported as unsent. With {@code --rate=0} the clients send as
+ * fast as they can, and latencies aren't corrected.
+ *
+ * GC pauses are read from the garbage collectors' notifications. The clients run in the same JVM, so the pauses
+ * include collecting the clients' garbage, which is small beside the application's.
+ */
+public final class LoadTest {
+
+    private static final int TIMEOUT_MILLIS = 60000;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private int clients = 8;
+    private int rate = 100;
+    private int warmupSeconds = 10;
+    private int seconds = 30;
+    private String mix;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        loadTest.parse(args);
+        loadTest.run();
+        // the embedded Tomcat's await thread isn't a daemon, and outlives the closed context
+        System.exit(0);
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            if (arg.isEmpty()) {
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, not " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "clients":
+                    clients = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    rate = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                case "mix":
+                    mix = value;
+                    break;
+                default:
+                    // system properties outrank application.properties, and unlike arguments may be empty
+                    System.setProperty(name, value);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(NerdSoundChallengeApplication.class,
+                "--server.port=0", "--spring.main.show_banner=false", "--logging.level.root=WARN");
+        try {
+            int port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+            List<Endpoint> endpoints = mix != null ? parseMix(mix) : defaultMix(context.getBean(MidiService.class));
+            System.out.printf("Application on port %d; %d clients, %s, %d s warmup, %d s measured%n", port, clients,
+                    rate > 0 ? rate + " requests/s" : "as fast as they can", warmupSeconds, seconds);
+
+            drive(port, endpoints, warmupSeconds, new Endpoint[endpoints.size()]);
+
+            GcPauses gcPauses = new GcPauses();
+            gcPauses.start();
+            long start = System.nanoTime();
+            Endpoint[] measured = endpoints.toArray(new Endpoint[endpoints.size()]);
+            long unsent = drive(port, endpoints, seconds, measured);
+            long elapsed = System.nanoTime() - start;
+            gcPauses.stop();
+
+            report(measured, unsent, elapsed, gcPauses);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Runs the clients for {@code seconds}, recording into {@code recordInto}, whose slots may be null to record
+     * nothing.
+     *
+     * @return the number of requests that were due but never sent
+     */
+    private long drive(int port, List<Endpoint> endpoints, int seconds, Endpoint[] recordInto)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        // each client sends every clients/rate seconds, offset so that the clients take turns
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(clients) / rate : 0;
+        LongAdder unsent = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(port, endpoints, recordInto, new Random(i), start + interval * i / clients,
+                    interval, end, unsent);
+            Thread thread = new Thread(client, "load-client-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return unsent.sum();
+    }
+
+    private void report(Endpoint[] endpoints, long unsent, long elapsedNanos, GcPauses gcPauses) {
+        LatencyHistogram overall = new LatencyHistogram();
+        long requests = 0;
+        long errors = 0;
+        int width = 3;
+        for (Endpoint endpoint : endpoints) {
+            width = Math.max(width, endpoint.path.length());
+        }
+        System.out.printf("%n%-" + width + "s %9s %7s %9s %9s %9s %9s %9s%n", "path", "requests", "errors", "p50 ms",
+                "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : endpoints) {
+            printRow(width, endpoint.path, endpoint.latency, endpoint.errors.sum());
+            requests += endpoint.latency.getCount();
+            errors += endpoint.errors.sum();
+            overall.add(endpoint.latency);
+        }
+        printRow(width, "all", overall, errors);
+
+        double elapsedSeconds = elapsedNanos / 1e9;
+        System.out.printf("%nThroughput: %.1f requests/s%n", requests / elapsedSeconds);
+        System.out.printf("Errors: %d (%.2f%%)%n", errors, requests == 0 ? 0 : 100.0 * errors / requests);
+        if (rate > 0) {
+            System.out.printf("Unsent: %d requests the clients fell too far behind to send%n", unsent);
+        }
+        System.out.printf("GC pauses: %d, %.1f ms in all (%.2f%% of the time), longest %.1f ms%n",
+                gcPauses.pauses.getCount(), gcPauses.pauses.getSumNanos() / NANOS_PER_MILLI,
+                100.0 * gcPauses.pauses.getSumNanos() / elapsedNanos, gcPauses.pauses.getMaxNanos() / NANOS_PER_MILLI);
+    }
+
+    private static void printRow(int width, String path, LatencyHistogram latency, long errors) {
+        System.out.printf("%-" + width + "s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", path, latency.getCount(), errors,
+                latency.getValueAtQuantile(0.5) / NANOS_PER_MILLI, latency.getValueAtQuantile(0.95) / NANOS_PER_MILLI,
+                latency.getValueAtQuantile(0.99) / NANOS_PER_MILLI,
+                latency.getValueAtQuantile(0.999) / NANOS_PER_MILLI, latency.getMaxNanos() / NANOS_PER_MILLI);
+    }
+
+    private static List<Endpoint> parseMix(String mix) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon < 0) {
+                endpoints.add(new Endpoint(entry, 1));
+            } else {
+                endpoints.add(new Endpoint(entry.substring(0, colon), Integer.parseInt(entry.substring(colon + 1))));
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * The index page, each generator's MIDI file eight times as often, and its audio as often as the index.
+     */
+    private static List<Endpoint> defaultMix(MidiService midiService) throws IOException {
+        List<Endpoint> endpoints = new ArrayList<>();
+        endpoints.add(new Endpoint("/", 2));
+        for (MidiGenerator generator : midiService.getGenerators()) {
+            String name = URLEncoder.encode(generator.getName(), "UTF-8").replace("+", "%20");
+            endpoints.add(new Endpoint("/midi/" + name + ".mid", 8));
+            endpoints.add(new Endpoint("/audio/" + name + ".wav", 1));
+        }
+        return endpoints;
+    }
+
+    private static class Endpoint {
+        final String path;
+        final int weight;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        Endpoint(String path, int weight) {
+            this.path = path;
+            this.weight = weight;
+        }
+    }
+
+    private static class Client implements Runnable {
+        private final int port;
+        private final List<Endpoint> endpoints;
+        private final Endpoint[] recordInto;
+        private final Random random;
+        private final long interval;
+        private final long end;
+        private final LongAdder unsent;
+        private final int totalWeight;
+        private final byte[] buffer = new byte[65536];
+        private long due;
+
+        Client(int port, List<Endpoint> endpoints, Endpoint[] recordInto, Random random, long firstDue, long interval,
+               long end, LongAdder unsent) {
+            this.port = port;
+            this.endpoints = endpoints;
+            this.recordInto = recordInto;
+            this.random = random;
+            this.due = firstDue;
+            this.interval = interval;
+            this.end = end;
+            this.unsent = unsent;
+            this.totalWeight = endpoints.stream().mapToInt(endpoint -> endpoint.weight).sum();
+        }
+
+        @Override
+        public void run() {
+            while (due < end) {
+                long now = System.nanoTime();
+                if (now >= end) {
+                    if (interval > 0) {
+                        unsent.add((end - due + interval - 1) / interval);
+                    }
+                    return;
+                }
+                if (interval > 0 && due > now) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(due - now);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+
+                int index = pick();
+                long sent = interval > 0 ? due : System.nanoTime();
+                boolean ok = send(endpoints.get(index).path);
+                long latency = System.nanoTime() - sent;
+                Endpoint endpoint = recordInto[index];
+                if (endpoint != null) {
+                    endpoint.latency.record(latency);
+                    if (!ok) {
+                        endpoint.errors.increment();
+                    }
+                }
+                due = interval > 0 ? due + interval : System.nanoTime();
+            }
+        }
+
+        private int pick() {
+            int ticket = random.nextInt(totalWeight);
+            for (int i = 0; i < endpoints.size(); i++) {
+                ticket -= endpoints.get(i).weight;
+                if (ticket < 0) {
+                    return i;
+                }
+            }
+            return endpoints.size() - 1;
+        }
+
+        /**
+         * Sends a request and reads the whole response, so that the connection is kept alive for the next one.
+         */
+        private boolean send(String path) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", port, path)
+                        .openConnection();
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                int status = connection.getResponseCode();
+                InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                if (body != null) {
+                    try (InputStream responseStream = body) {
+                        while (responseStream.read(buffer) >= 0) {
+                            // drained
+                        }
+                    }
+                }
+                return status < 400;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Records the length of every stop-the-world collection, leaving out the work that concurrent collectors do
+     * alongside the application.
+     */
+    private static class GcPauses implements NotificationListener {
+        final LatencyHistogram pauses = new LatencyHistogram();
+
+        void start() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+                }
+            }
+        }
+
+        void stop() throws Exception {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            String collector = info.getGcName();
+            if (!collector.contains("Concurrent") && !collector.contains("Cycles")) {
+                pauses.record(TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+            }
+        }
+    }
+}
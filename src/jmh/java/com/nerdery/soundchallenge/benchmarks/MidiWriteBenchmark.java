@@ -0,0 +1,41 @@
+package com.nerdery.soundchallenge.benchmarks;
+
+import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link MidiSystem#write} on its own, for a {@link Sequence} read back from each generator's output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class MidiWriteBenchmark {
+
+    @Param({"steve vai pentatonic licks", "mario", "jmullinSuperMario"})
+    public String generatorName;
+
+    private Sequence sequence;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() throws IOException, InvalidMidiDataException {
+        MidiGenerator generator = Generators.create(generatorName);
+        outputStream = new ByteArrayOutputStream(1 << 16);
+        generator.generateSong(outputStream);
+        sequence = MidiSystem.getSequence(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        outputStream.reset();
+        return MidiSystem.write(sequence, 1, outputStream);
+    }
+}
@@ -0,0 +1,277 @@
+package com.nerdery.soundchallenge.audio;
+
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Sequence;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * AudioRenderer turns a {@link Sequence} into PCM audio with the JDK's software synthesizer. The synthesizers come
+ * from a {@link SynthesizerPool}, opened in stream mode, so no audio hardware is involved, and audio is produced as
+ * fast as it is read rather than in realtime.
+ *
+ * Every event in the sequence is handed to the synthesizer up front, timestamped in microseconds from the start of the
+ * song; the synthesizer then plays them at the right sample as the stream is read.
+ *
+ * A whole song can also be rendered in time segments, each on its own synthesizer and thread. Each segment starts a
+ * second early, from the state the song has built up by then, so that notes, releases and reverb have settled by the
+ * time its audio is used; neighbouring segments overlap by a few milliseconds and are crossfaded together.
+ */
+public class AudioRenderer {
+
+    public static final AudioFormat DEFAULT_FORMAT = new AudioFormat(44100, 16, 2, true, false);
+    public static final int DEFAULT_BLOCK_FRAMES = 1024;
+
+    private static final long RELEASE_MICROSECONDS = 2000000;
+    private static final long PRE_ROLL_MICROSECONDS = 1000000;
+    private static final long CROSSFADE_MICROSECONDS = 10000;
+    private static final long MIN_SEGMENT_MICROSECONDS = 5000000;
+    private static final int WAVE_HEADER_LENGTH = 44;
+    private static final int RIFF_MAGIC = 0x52494646;
+    private static final int WAVE_MAGIC = 0x57415645;
+    private static final int FMT_MAGIC = 0x666d7420;
+    private static final int DATA_MAGIC = 0x64617461;
+
+    private final SynthesizerPool synthesizers;
+
+    public AudioRenderer(SynthesizerPool synthesizers) {
+        this.synthesizers = synthesizers;
+    }
+
+    public AudioFormat getFormat() {
+        return synthesizers.getFormat();
+    }
+
+    /**
+     * Renders the sequence and writes it to the stream as a WAV file.
+     *
+     * @return the number of bytes written
+     */
+    public long renderWave(Sequence sequence, OutputStream outputStream)
+            throws MidiUnavailableException, IOException {
+        try (AudioInputStream song = openStream(sequence)) {
+            return writeWave(song, outputStream, DEFAULT_BLOCK_FRAMES);
+        }
+    }
+
+    /**
+     * Renders the sequence in up to {@code segments} time segments at once, running all but the first on
+     * {@code executor}, and writes it to the stream as a WAV file. Only synthesizers that are free right away are
+     * used for the extra segments, so a busy pool renders with fewer segments, or in one piece, rather than waiting.
+     *
+     * @return the number of bytes written
+     */
+    public long renderWave(Sequence sequence, OutputStream outputStream, int segments, Executor executor)
+            throws MidiUnavailableException, IOException {
+        Timeline timeline = new Timeline(sequence);
+        AudioFormat format = getFormat();
+        long totalFrames = toFrames(timeline.getLength() + RELEASE_MICROSECONDS);
+        int maxSegments = format.getSampleSizeInBits() == 16
+                ? (int) Math.min(segments, totalFrames / toFrames(MIN_SEGMENT_MICROSECONDS)) : 1;
+
+        List<PooledSynthesizer> borrowed = new ArrayList<>();
+        borrowed.add(synthesizers.borrow());
+        PooledSynthesizer extra;
+        while (borrowed.size() < maxSegments && (extra = synthesizers.tryBorrow()) != null) {
+            borrowed.add(extra);
+        }
+        if (borrowed.size() == 1) {
+            try (AudioInputStream song = openStream(timeline, borrowed.get(0))) {
+                return writeWave(song, outputStream, DEFAULT_BLOCK_FRAMES);
+            }
+        }
+
+        int count = borrowed.size();
+        long preRollFrames = toFrames(PRE_ROLL_MICROSECONDS);
+        int crossfadeFrames = (int) toFrames(CROSSFADE_MICROSECONDS);
+        Supplier<byte[]> firstSegment = null;
+        List<CompletableFuture<byte[]>> otherSegments = new ArrayList<>(count - 1);
+        for (int i = 0; i < count; i++) {
+            PooledSynthesizer synthesizer = borrowed.get(i);
+            long from = totalFrames * i / count;
+            long to = i == count - 1 ? totalFrames : totalFrames * (i + 1) / count + crossfadeFrames;
+            long windowStart = Math.max(0, from - preRollFrames);
+            Supplier<byte[]> segment = () -> renderSegment(timeline, synthesizer, windowStart, from, to);
+            if (i == 0) {
+                firstSegment = segment;
+            } else {
+                otherSegments.add(CompletableFuture.supplyAsync(segment, executor));
+            }
+        }
+
+        byte[] previous;
+        try {
+            previous = firstSegment.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeWaveHeader(outputStream, format, totalFrames * format.getFrameSize());
+        for (CompletableFuture<byte[]> segment : otherSegments) {
+            byte[] next = join(segment);
+            crossfade(previous, next, crossfadeFrames, format);
+            outputStream.write(previous, 0, previous.length - crossfadeFrames * format.getFrameSize());
+            previous = next;
+        }
+        outputStream.write(previous);
+        return WAVE_HEADER_LENGTH + totalFrames * format.getFrameSize();
+    }
+
+    /**
+     * Borrows a synthesizer and starts rendering the sequence on it. Nothing is synthesized until the stream is read,
+     * and reading it produces exactly the length of the song plus its release; closing it returns the synthesizer.
+     */
+    public AudioInputStream openStream(Sequence sequence) throws MidiUnavailableException {
+        return openStream(new Timeline(sequence), synthesizers.borrow());
+    }
+
+    /**
+     * The size of the WAV file that {@link #writeWave} writes for the stream.
+     */
+    public static long getWaveLength(AudioInputStream audioStream) {
+        return WAVE_HEADER_LENGTH + audioStream.getFrameLength() * audioStream.getFormat().getFrameSize();
+    }
+
+    /**
+     * Writes a PCM stream of known length as a WAV file, one block of {@code blockFrames} frames at a time, flushing
+     * after every block. Since the length is known up front the header is complete before the first sample is read,
+     * so the audio can be sent as it is synthesized and only one block is ever held in memory.
+     *
+     * @return the number of bytes written
+     */
+    public static long writeWave(AudioInputStream audioStream, OutputStream outputStream, int blockFrames)
+            throws IOException {
+        AudioFormat streamFormat = audioStream.getFormat();
+        writeWaveHeader(outputStream, streamFormat, audioStream.getFrameLength() * streamFormat.getFrameSize());
+        outputStream.flush();
+
+        byte[] block = new byte[blockFrames * streamFormat.getFrameSize()];
+        long bytesWritten = WAVE_HEADER_LENGTH;
+        int read;
+        while ((read = audioStream.read(block)) > 0) {
+            outputStream.write(block, 0, read);
+            outputStream.flush();
+            bytesWritten += read;
+        }
+        return bytesWritten;
+    }
+
+    private static void writeWaveHeader(OutputStream outputStream, AudioFormat format, long dataLength)
+            throws IOException {
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.isBigEndian()) {
+            throw new IllegalArgumentException("Can only write little-endian signed PCM: " + format);
+        }
+
+        DataOutputStream header = new DataOutputStream(outputStream);
+        header.writeInt(RIFF_MAGIC);
+        header.writeInt(Integer.reverseBytes((int) (WAVE_HEADER_LENGTH - 8 + dataLength)));
+        header.writeInt(WAVE_MAGIC);
+        header.writeInt(FMT_MAGIC);
+        header.writeInt(Integer.reverseBytes(16));
+        header.writeShort(Short.reverseBytes((short) 1));
+        header.writeShort(Short.reverseBytes((short) format.getChannels()));
+        header.writeInt(Integer.reverseBytes((int) format.getSampleRate()));
+        header.writeInt(Integer.reverseBytes((int) format.getSampleRate() * format.getFrameSize()));
+        header.writeShort(Short.reverseBytes((short) format.getFrameSize()));
+        header.writeShort(Short.reverseBytes((short) format.getSampleSizeInBits()));
+        header.writeInt(DATA_MAGIC);
+        header.writeInt(Integer.reverseBytes((int) dataLength));
+    }
+
+    private AudioInputStream openStream(Timeline timeline, PooledSynthesizer synthesizer) {
+        try {
+            timeline.send(synthesizer.getReceiver(), synthesizer.getMicrosecondPosition());
+            return synthesizer.openStream(toFrames(timeline.getLength() + RELEASE_MICROSECONDS));
+        } catch (RuntimeException e) {
+            synthesizer.discard();
+            throw e;
+        }
+    }
+
+    private byte[] renderSegment(Timeline timeline, PooledSynthesizer synthesizer, long windowStart, long from,
+                                 long to) {
+        int frameSize = getFormat().getFrameSize();
+        try {
+            timeline.sendWindow(synthesizer.getReceiver(), synthesizer.getMicrosecondPosition(),
+                    toMicroseconds(windowStart), toMicroseconds(to));
+        } catch (RuntimeException e) {
+            synthesizer.discard();
+            throw e;
+        }
+
+        try (AudioInputStream audioStream = synthesizer.openStream(to - windowStart)) {
+            byte[] preRoll = new byte[DEFAULT_BLOCK_FRAMES * frameSize];
+            long skip = (from - windowStart) * frameSize;
+            while (skip > 0) {
+                skip -= readFully(audioStream, preRoll, (int) Math.min(preRoll.length, skip));
+            }
+            byte[] segment = new byte[(int) ((to - from) * frameSize)];
+            readFully(audioStream, segment, segment.length);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long toFrames(long microseconds) {
+        return (long) (getFormat().getFrameRate() * microseconds / 1000000.0);
+    }
+
+    private long toMicroseconds(long frames) {
+        return (long) (frames * 1000000.0 / getFormat().getFrameRate());
+    }
+
+    private static int readFully(InputStream inputStream, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = inputStream.read(buffer, total, length - total);
+            if (read < 0) {
+                throw new EOFException("The synthesizer stream ended early");
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> part) throws IOException {
+        try {
+            return part.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fades the last {@code frames} frames of {@code previous} out and the first {@code frames} frames of {@code next}
+     * in, leaving the mix at the start of {@code next}. Both must be 16 bit little-endian PCM.
+     */
+    private static void crossfade(byte[] previous, byte[] next, int frames, AudioFormat format) {
+        int channels = format.getChannels();
+        int offset = previous.length - frames * format.getFrameSize();
+        for (int frame = 0; frame < frames; frame++) {
+            double weight = (frame + 0.5) / frames;
+            for (int channel = 0; channel < channels; channel++) {
+                int index = (frame * channels + channel) * 2;
+                int fadingOut = (short) ((previous[offset + index] & 0xFF) | (previous[offset + index + 1] << 8));
+                int fadingIn = (short) ((next[index] & 0xFF) | (next[index + 1] << 8));
+                int mixed = (int) Math.round(fadingOut * (1 - weight) + fadingIn * weight);
+                next[index] = (byte) mixed;
+                next[index + 1] = (byte) (mixed >> 8);
+            }
+        }
+    }
+}
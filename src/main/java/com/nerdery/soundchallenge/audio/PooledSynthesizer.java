@@ -0,0 +1,195 @@
+package com.nerdery.soundchallenge.audio;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.midi.SysexMessage;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * A synthesizer borrowed from a {@link SynthesizerPool}. Its stream never ends; each song is read from it through
+ * {@link #openStream(long)}, and closing that stream gives the synthesizer back to the pool.
+ *
+ * The synthesizer's clock only moves as its stream is read, so the time at which a song starts is worked out from the
+ * number of frames read so far.
+ *
+ * Rendering to a stream is only offered by the JDK's internal {@code com.sun.media.sound.AudioSynthesizer}, so its
+ * {@code openStream} is called reflectively rather than compiled against. On Java 9 and later the JVM must be started
+ * with {@code --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED}; without it the synthesizer can't be opened
+ * and a {@link MidiUnavailableException} saying so is thrown.
+ */
+public class PooledSynthesizer {
+
+    static final String EXPORTS_OPTION = "--add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED";
+
+    private static final byte[] GENERAL_MIDI_ON = {(byte) 0xF0, 0x7E, 0x7F, 0x09, 0x01, (byte) 0xF7};
+    private static final int ALL_SOUND_OFF = 120;
+    private static final Method OPEN_STREAM = findOpenStream();
+
+    private final SynthesizerPool pool;
+    private final Synthesizer synthesizer;
+    private final AudioFormat format;
+    private final Receiver receiver;
+    private final CountingInputStream stream;
+
+    PooledSynthesizer(SynthesizerPool pool, Synthesizer synthesizer, AudioFormat format, Map<String, Object> info)
+            throws MidiUnavailableException {
+        this.pool = pool;
+        this.synthesizer = synthesizer;
+        this.format = format;
+        this.stream = new CountingInputStream(openAudioStream(synthesizer, format, info));
+        this.receiver = synthesizer.getReceiver();
+    }
+
+    /**
+     * Whether {@code synthesizer} can render to a stream.
+     */
+    static boolean canStream(Synthesizer synthesizer) {
+        return OPEN_STREAM != null && OPEN_STREAM.getDeclaringClass().isInstance(synthesizer);
+    }
+
+    private static AudioInputStream openAudioStream(Synthesizer synthesizer, AudioFormat format,
+                                                    Map<String, Object> info) throws MidiUnavailableException {
+        if (!canStream(synthesizer)) {
+            throw new MidiUnavailableException("The default synthesizer cannot render to a stream");
+        }
+        try {
+            return (AudioInputStream) OPEN_STREAM.invoke(synthesizer, format, info);
+        } catch (IllegalAccessException e) {
+            throw new MidiUnavailableException("Rendering to a stream needs the JVM option " + EXPORTS_OPTION);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MidiUnavailableException) {
+                throw (MidiUnavailableException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static Method findOpenStream() {
+        try {
+            return Class.forName("com.sun.media.sound.AudioSynthesizer")
+                    .getMethod("openStream", AudioFormat.class, Map.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public Receiver getReceiver() {
+        return receiver;
+    }
+
+    /**
+     * The synthesizer time, in microseconds, of the next frame that will be read.
+     */
+    public long getMicrosecondPosition() {
+        return stream.count / format.getFrameSize() * 1000000L / (long) format.getFrameRate();
+    }
+
+    /**
+     * A stream of the next {@code frames} frames. Closing it returns the synthesizer to its pool; if it was not read to
+     * the end, the synthesizer is thrown away instead.
+     */
+    public AudioInputStream openStream(long frames) {
+        return new AudioInputStream(stream, format, frames) {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (!closed) {
+                    closed = true;
+                    pool.release(PooledSynthesizer.this, framePos >= frameLength);
+                }
+            }
+        };
+    }
+
+    /**
+     * Gives the synthesizer back to its pool without reading a song from it, when scheduling one went wrong.
+     */
+    public void discard() {
+        pool.release(this, false);
+    }
+
+    void reset() {
+        try {
+            for (int channel = 0; channel < 16; channel++) {
+                send(new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, ALL_SOUND_OFF, 0));
+            }
+            send(new SysexMessage(GENERAL_MIDI_ON, GENERAL_MIDI_ON.length));
+        } catch (InvalidMidiDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void skip(long bytes) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (bytes > 0) {
+            int read = stream.read(buffer, 0, (int) Math.min(buffer.length, bytes));
+            if (read < 0) {
+                throw new IOException("The synthesizer stream ended");
+            }
+            bytes -= read;
+        }
+    }
+
+    void close() {
+        synthesizer.close();
+    }
+
+    private void send(MidiMessage message) {
+        receiver.send(message, -1);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // the synthesizer's stream stays open for the next song
+        }
+    }
+}
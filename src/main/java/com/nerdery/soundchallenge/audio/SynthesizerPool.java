@@ -0,0 +1,259 @@
+package com.nerdery.soundchallenge.audio;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Soundbank;
+import javax.sound.midi.Synthesizer;
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SynthesizerPool keeps a fixed number of software synthesizers open in stream mode, so that a render only pays for
+ * synthesis and not for opening a synthesizer and loading its soundbank, which takes anywhere from tens to hundreds of
+ * milliseconds. Every synthesizer is opened and warmed up when the pool is created.
+ *
+ * By default the synthesizers play the JDK's built-in soundbank. A custom soundbank, such as an SF2 file, is parsed
+ * once and shared by every synthesizer in the pool. The synthesizers are then opened in "large mode", where sample
+ * data is not copied onto the heap but read from the soundbank file as notes need it, so the operating system's page
+ * cache holds the one copy of it and a synthesizer costs the same however large the soundbank is.
+ *
+ * A synthesizer is reset when it is returned: all sound off, then a General MIDI reset, which puts every channel back
+ * to its default program and controllers. Events that were scheduled for a song that was not played to the end can't
+ * be taken back, so a synthesizer returned early is closed and replaced by a fresh one. That happens on a background
+ * thread, so the request that gave the synthesizer back doesn't wait for it; if no fresh synthesizer can be opened, the
+ * pool shrinks by one instead, and once it is empty every borrow fails at once.
+ */
+public class SynthesizerPool implements AutoCloseable {
+
+    private static final int WARM_UP_BYTES = 16384;
+
+    private final AudioFormat format;
+    private final Soundbank soundbank;
+    private final AtomicInteger size;
+    private final long borrowTimeoutMillis;
+    private final BlockingQueue<PooledSynthesizer> idle;
+    private final ExecutorService replacer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "synthesizer-replacer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+    private final LongAdder failedReplacements = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private volatile boolean closed;
+
+    public SynthesizerPool(AudioFormat format, int size, long borrowTimeoutMillis) throws MidiUnavailableException {
+        this(format, null, size, borrowTimeoutMillis);
+    }
+
+    /**
+     * Creates a pool whose synthesizers play {@code soundbank} instead of the default soundbank.
+     */
+    public SynthesizerPool(AudioFormat format, Soundbank soundbank, int size, long borrowTimeoutMillis)
+            throws MidiUnavailableException {
+        if (size < 1) {
+            throw new IllegalArgumentException("A synthesizer pool needs at least one synthesizer");
+        }
+        this.format = format;
+        this.soundbank = soundbank;
+        this.size = new AtomicInteger(size);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(open());
+            }
+        } catch (MidiUnavailableException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Parses a soundbank file for use by a pool. SF2 and DLS files are supported.
+     */
+    public static Soundbank loadSoundbank(File file) throws InvalidMidiDataException, IOException {
+        return MidiSystem.getSoundbank(file);
+    }
+
+    /**
+     * Takes a synthesizer out of the pool, waiting up to the borrow timeout for one to be returned.
+     */
+    public PooledSynthesizer borrow() throws MidiUnavailableException {
+        if (closed) {
+            throw new MidiUnavailableException("The synthesizer pool is closed");
+        } else if (size.get() == 0) {
+            throw new MidiUnavailableException("No synthesizer in the pool could be replaced");
+        }
+
+        long start = System.nanoTime();
+        PooledSynthesizer synthesizer;
+        try {
+            synthesizer = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MidiUnavailableException("Interrupted waiting for a synthesizer");
+        }
+
+        long waitNanos = System.nanoTime() - start;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        if (synthesizer == null) {
+            borrowTimeouts.increment();
+            throw new MidiUnavailableException(String.format("No synthesizer was free within %d ms",
+                    borrowTimeoutMillis));
+        }
+        borrows.increment();
+        return synthesizer;
+    }
+
+    /**
+     * Takes a synthesizer out of the pool if one is free right now, or returns null.
+     */
+    public PooledSynthesizer tryBorrow() {
+        PooledSynthesizer synthesizer = closed ? null : idle.poll();
+        if (synthesizer != null) {
+            borrows.increment();
+        }
+        return synthesizer;
+    }
+
+    /**
+     * The number of synthesizers in the pool, idle or borrowed. It only goes down, when one can't be replaced.
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeouts.sum();
+    }
+
+    /**
+     * The number of synthesizers that were closed and replaced, because they were returned before their song ended.
+     */
+    public long getReplacementCount() {
+        return replacements.sum();
+    }
+
+    /**
+     * The number of synthesizers that could not be replaced, each of which shrank the pool by one.
+     */
+    public long getFailedReplacementCount() {
+        return failedReplacements.sum();
+    }
+
+    /**
+     * The total time spent waiting in {@link #borrow()}, whether or not a synthesizer was eventually borrowed.
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        replacer.shutdown();
+        PooledSynthesizer synthesizer;
+        while ((synthesizer = idle.poll()) != null) {
+            synthesizer.close();
+        }
+    }
+
+    void release(PooledSynthesizer synthesizer, boolean finished) {
+        if (finished && !closed) {
+            try {
+                synthesizer.reset();
+                idle.add(synthesizer);
+                return;
+            } catch (RuntimeException e) {
+                // fall through and replace it
+            }
+        }
+
+        if (!closed) {
+            try {
+                replacer.execute(() -> replace(synthesizer));
+                return;
+            } catch (RejectedExecutionException e) {
+                // the pool was closed meanwhile
+            }
+        }
+        synthesizer.close();
+    }
+
+    private void replace(PooledSynthesizer synthesizer) {
+        synthesizer.close();
+        if (closed) {
+            return;
+        }
+        try {
+            idle.add(open());
+            replacements.increment();
+        } catch (MidiUnavailableException | RuntimeException | LinkageError e) {
+            size.decrementAndGet();
+            failedReplacements.increment();
+        }
+        if (closed) {
+            close();
+        }
+    }
+
+    private PooledSynthesizer open() throws MidiUnavailableException {
+        Synthesizer synthesizer = MidiSystem.getSynthesizer();
+        if (!PooledSynthesizer.canStream(synthesizer)) {
+            throw new MidiUnavailableException("The default synthesizer cannot render to a stream");
+        }
+
+        Map<String, Object> info = new HashMap<>();
+        if (soundbank != null) {
+            info.put("load default soundbank", false);
+            info.put("large mode", true);
+        }
+        PooledSynthesizer pooled = new PooledSynthesizer(this, synthesizer, format, info);
+        if (soundbank != null && !synthesizer.loadAllInstruments(soundbank)) {
+            pooled.close();
+            throw new MidiUnavailableException("The synthesizer does not support the soundbank " + soundbank.getName());
+        }
+        try {
+            pooled.skip(WARM_UP_BYTES);
+        } catch (IOException e) {
+            pooled.close();
+            throw new MidiUnavailableException("Could not warm up a synthesizer: " + e.getMessage());
+        }
+        return pooled;
+    }
+}
@@ -0,0 +1,161 @@
+package com.nerdery.soundchallenge.audio;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.util.Arrays;
+
+/**
+ * Timeline is every event of a {@link Sequence} that a synthesizer plays, merged into one list and timed in
+ * microseconds from the start of the song. Tempo changes in any track apply to all of them, as they do when the
+ * sequence is played; the tempo messages themselves are not kept, since the synthesizer has no use for them.
+ */
+public class Timeline {
+
+    private static final int TEMPO_TYPE = 0x51;
+    private static final int DEFAULT_TEMPO = 500000;
+
+    private final long[] times;
+    private final MidiMessage[] messages;
+    private final int size;
+
+    public Timeline(Sequence sequence) {
+        int capacity = 0;
+        for (Track track : sequence.getTracks()) {
+            capacity += track.size();
+        }
+        long[] eventTimes = new long[capacity];
+        MidiMessage[] eventMessages = new MidiMessage[capacity];
+        int count = 0;
+
+        Track[] tracks = sequence.getTracks();
+        int[] positions = new int[tracks.length];
+        boolean ppq = sequence.getDivisionType() == Sequence.PPQ;
+        double ticksPerSecond = ppq ? 0 : sequence.getDivisionType() * sequence.getResolution();
+        int tempo = DEFAULT_TEMPO;
+        long lastTick = 0;
+        double microseconds = 0;
+
+        while (true) {
+            // events on the same tick are taken from the earlier track first, as the sequencer does
+            int next = -1;
+            long nextTick = Long.MAX_VALUE;
+            for (int i = 0; i < tracks.length; i++) {
+                if (positions[i] < tracks[i].size()) {
+                    long tick = tracks[i].get(positions[i]).getTick();
+                    if (tick < nextTick) {
+                        next = i;
+                        nextTick = tick;
+                    }
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+
+            MidiMessage message = tracks[next].get(positions[next]++).getMessage();
+            if (ppq) {
+                microseconds += (nextTick - lastTick) * (double) tempo / sequence.getResolution();
+            } else {
+                microseconds += (nextTick - lastTick) * 1000000.0 / ticksPerSecond;
+            }
+            lastTick = nextTick;
+
+            if (message instanceof MetaMessage) {
+                MetaMessage metaMessage = (MetaMessage) message;
+                if (metaMessage.getType() == TEMPO_TYPE && metaMessage.getData().length == 3) {
+                    byte[] data = metaMessage.getData();
+                    tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+                }
+            } else {
+                eventTimes[count] = (long) microseconds;
+                eventMessages[count++] = message;
+            }
+        }
+
+        this.times = eventTimes;
+        this.messages = eventMessages;
+        this.size = count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The time of the last event, in microseconds.
+     */
+    public long getLength() {
+        return size == 0 ? 0 : times[size - 1];
+    }
+
+    /**
+     * Sends every event to the receiver, timestamped in microseconds from {@code start}.
+     */
+    public void send(Receiver receiver, long start) {
+        for (int i = 0; i < size; i++) {
+            receiver.send(messages[i], start + times[i]);
+        }
+    }
+
+    /**
+     * Sends the events from {@code from} up to {@code to} to the receiver, with {@code from} played at {@code start}.
+     * The state that the song has built up by {@code from} is sent first, all at {@code start}: every program change,
+     * controller and other non-note message before it, in order, and then a note on for every note still sounding.
+     */
+    public void sendWindow(Receiver receiver, long start, long from, long to) {
+        int first = indexOf(from);
+        ShortMessage[][] sounding = new ShortMessage[16][];
+        for (int i = 0; i < first; i++) {
+            MidiMessage message = messages[i];
+            if (!(message instanceof ShortMessage)) {
+                receiver.send(message, start);
+                continue;
+            }
+
+            ShortMessage shortMessage = (ShortMessage) message;
+            int command = shortMessage.getCommand();
+            if (command == ShortMessage.NOTE_ON || command == ShortMessage.NOTE_OFF) {
+                int channel = shortMessage.getChannel();
+                if (sounding[channel] == null) {
+                    sounding[channel] = new ShortMessage[128];
+                }
+                boolean noteOn = command == ShortMessage.NOTE_ON && shortMessage.getData2() > 0;
+                sounding[channel][shortMessage.getData1()] = noteOn ? shortMessage : null;
+            } else {
+                receiver.send(message, start);
+            }
+        }
+
+        for (ShortMessage[] channelNotes : sounding) {
+            if (channelNotes != null) {
+                for (ShortMessage noteOn : channelNotes) {
+                    if (noteOn != null) {
+                        receiver.send(noteOn, start);
+                    }
+                }
+            }
+        }
+
+        for (int i = first; i < size && times[i] < to; i++) {
+            receiver.send(messages[i], start + times[i] - from);
+        }
+    }
+
+    /**
+     * The index of the first event at or after {@code time}.
+     */
+    private int indexOf(long time) {
+        int index = Arrays.binarySearch(times, 0, size, time);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && times[index - 1] == time) {
+            index--;
+        }
+        return index;
+    }
+}
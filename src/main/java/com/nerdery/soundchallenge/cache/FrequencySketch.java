@@ -0,0 +1,80 @@
+package com.nerdery.soundchallenge.cache;
+
+/**
+ * A count-min sketch of how often keys have been asked for recently, in four-bit counters. Each key has a counter in
+ * each of four rows and its estimate is the smallest of them, so collisions can only make a key look more popular
+ * than it is. Once enough increments have been recorded every counter is halved, so that popularity fades when
+ * requests move on to other keys.
+ *
+ * Not thread safe; {@link RenderCache} only uses it while holding its lock.
+ */
+class FrequencySketch {
+
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int increments;
+
+    /**
+     * @param width the number of counters in each row, rounded up to a power of two
+     */
+    FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(width, 16) - 1) << 1;
+        counters = new byte[ROWS][size];
+        mask = size - 1;
+        sampleSize = size * 10;
+    }
+
+    int estimate(Object key) {
+        int hash = spread(key.hashCode());
+        int estimate = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            estimate = Math.min(estimate, counters[row][index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Counts one more request for {@code key}, only raising the counters that hold its current estimate.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int estimate = estimate(key);
+        if (estimate == MAX_COUNT) {
+            return;
+        }
+        for (int row = 0; row < ROWS; row++) {
+            int index = index(hash, row);
+            if (counters[row][index] == estimate) {
+                counters[row][index]++;
+            }
+        }
+        if (++increments >= sampleSize) {
+            age();
+        }
+    }
+
+    private void age() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        increments /= 2;
+    }
+
+    private int index(int hash, int row) {
+        int rowHash = hash * SEEDS[row];
+        return (rowHash ^ (rowHash >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,185 @@
+package com.nerdery.soundchallenge.cache;
+
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RenderCache keeps rendered songs, MIDI and audio alike, within a budget of bytes. Each entry weighs as much as its
+ * content, and when a new entry needs room the least recently used entries make way for it, but only if the new entry
+ * has been asked for more often than each of them. How often keys are asked for is tracked by a
+ * {@link FrequencySketch}, whether or not they are cached, so a one-off variant can't push out a song that is
+ * requested all day, while a variant that becomes popular soon earns its place.
+ *
+ * Entries at least as large as the off-heap threshold are moved into native memory, which keeps long audio renders
+ * off the heap. They still count against the same budget.
+ */
+@Component
+public class RenderCache {
+
+    private final long maxBytes;
+    private final int offHeapMinBytes;
+    private final LinkedHashMap<String, RenderedSong> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final FrequencySketch frequencies;
+    private long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maxBytes        the most content to keep, in bytes
+     * @param offHeapMinBytes the size from which entries are kept in native memory, or 0 to keep them all on the heap
+     */
+    @Inject
+    public RenderCache(@Value("${nerdsound.cache.maxBytes:67108864}") long maxBytes,
+                       @Value("${nerdsound.cache.offHeapMinBytes:1048576}") int offHeapMinBytes) {
+        this.maxBytes = maxBytes;
+        this.offHeapMinBytes = offHeapMinBytes;
+        this.frequencies = new FrequencySketch(4096);
+    }
+
+    /**
+     * Returns the cached song, or null if there isn't one. Either way the request counts towards the key's frequency.
+     */
+    public RenderedSong get(String key) {
+        RenderedSong song;
+        synchronized (this) {
+            frequencies.increment(key);
+            song = entries.get(key);
+        }
+        if (song != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return song;
+    }
+
+    /**
+     * Returns the cached song, or null if there isn't one, without counting it as a request.
+     */
+    public synchronized RenderedSong peek(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Offers a song to the cache. It is kept if it fits in the budget as it is, or if it is more popular than each of
+     * the entries that would have to be evicted to make room. A song mapped from a file that has since been deleted
+     * is never kept.
+     *
+     * @return whether the song was kept
+     */
+    public boolean put(String key, RenderedSong song) {
+        int weight = song.getContentLength();
+        if (weight > maxBytes) {
+            rejections.increment();
+            return false;
+        }
+        RenderedSong stored = offHeapMinBytes > 0 && weight >= offHeapMinBytes ? song.toDirect() : song;
+
+        synchronized (this) {
+            // checked under the lock, so that a song mapped from a segment that is being deleted is either turned
+            // away here or dropped by invalidateFile
+            if (song.getFile() != null && !Files.exists(song.getFile())) {
+                return false;
+            }
+            RenderedSong previous = entries.remove(key);
+            if (previous != null) {
+                weightedSize -= previous.getContentLength();
+            }
+
+            List<String> victims = new ArrayList<>();
+            long freed = 0;
+            int frequency = frequencies.estimate(key);
+            Iterator<Map.Entry<String, RenderedSong>> eldest = entries.entrySet().iterator();
+            while (weightedSize - freed + weight > maxBytes) {
+                Map.Entry<String, RenderedSong> victim = eldest.next();
+                if (frequencies.estimate(victim.getKey()) >= frequency) {
+                    if (previous != null) {
+                        entries.put(key, previous);
+                        weightedSize += previous.getContentLength();
+                    }
+                    rejections.increment();
+                    return false;
+                }
+                victims.add(victim.getKey());
+                freed += victim.getValue().getContentLength();
+            }
+
+            for (String victim : victims) {
+                entries.remove(victim);
+            }
+            evictions.add(victims.size());
+            weightedSize += weight - freed;
+            entries.put(key, stored);
+            return true;
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        RenderedSong song = entries.remove(key);
+        if (song != null) {
+            weightedSize -= song.getContentLength();
+        }
+    }
+
+    /**
+     * Drops every song that was mapped from {@code file}, once the file has been deleted.
+     */
+    public synchronized void invalidateFile(Path file) {
+        Iterator<RenderedSong> songs = entries.values().iterator();
+        while (songs.hasNext()) {
+            RenderedSong song = songs.next();
+            if (file.equals(song.getFile())) {
+                weightedSize -= song.getContentLength();
+                songs.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The total size of the cached content, in bytes.
+     */
+    public synchronized long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * The number of songs that were offered but not kept, because they were too large or not popular enough.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+}
@@ -0,0 +1,364 @@
+package com.nerdery.soundchallenge.cache;
+
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * RenderStore keeps rendered songs on disk, so that they outlive restarts. Songs are appended to segment files in the
+ * directory named by {@code nerdsound.store.directory}, each as a record of its key, its ETag and its bytes, and are
+ * read back by memory-mapping the bytes. On startup only the record headers are read, to build the index.
+ *
+ * A record's magic number is written after the rest of it, so a record that was cut short by a crash has none, and is
+ * truncated away when the store is next opened. Nothing is ever rewritten in place: a new render of a key is appended
+ * and replaces the old one in the index. Once the segments take up more than {@code nerdsound.store.maxBytes}, the
+ * oldest segment is deleted along with everything in it, and the songs mapped from it are dropped from the
+ * {@link RenderCache}, so that none of them is sent from a file that is gone or keeps its space taken up on disk.
+ *
+ * Keys should include a {@link #fingerprint} of the code and resources that rendered the song, so that entries for
+ * code that has since changed are never found again and age out with their segments.
+ *
+ * The directory has to outlive the process for the store to be of any use. The default under
+ * {@code java.io.tmpdir} does on a server of one's own, but not on a platform with an ephemeral filesystem, such as a
+ * Heroku dyno, where it is wiped on every restart and deploy; point {@code nerdsound.store.directory} at a persistent
+ * volume there, or leave it empty.
+ */
+@Component
+public class RenderStore {
+
+    private static final int MAGIC = 0x4E534E44;
+    private static final int HEADER_BYTES = 16;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.dat");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private RenderCache renderCache;
+    private long totalBytes;
+    private long loadNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    /**
+     * @param directory    where to keep the segment files, or empty to keep nothing
+     * @param segmentBytes how large a segment grows before a new one is started
+     * @param maxBytes     how much the segments may take up in all
+     */
+    @Inject
+    public RenderStore(@Value("${nerdsound.store.directory:}") String directory,
+                       @Value("${nerdsound.store.segmentBytes:67108864}") long segmentBytes,
+                       @Value("${nerdsound.store.maxBytes:1073741824}") long maxBytes) throws IOException {
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        if (this.directory != null) {
+            long start = System.nanoTime();
+            load();
+            loadNanos = System.nanoTime() - start;
+        }
+    }
+
+    @Inject
+    public void setRenderCache(RenderCache theRenderCache) {
+        renderCache = theRenderCache;
+    }
+
+    /**
+     * A fingerprint of every class file and resource under some locations of the class path, such as
+     * {@code com/nerdery/soundchallenge/} or {@code scores/}, in every jar and directory that has them, and of the
+     * jars that some library classes were loaded from.
+     *
+     * Working out which classes a song actually depends on misses too much, from Scala closures to helpers that are
+     * only reached through a lambda or to the data files a generator reads, so everything under the locations is
+     * taken: the fingerprint changes with any change to them, even one that doesn't change a song. It only depends on
+     * their contents, so rebuilding unchanged code keeps it. Libraries are too large to read on every startup, so they
+     * are told apart by the names of their jars, which carry their versions.
+     */
+    public static String fingerprint(ClassLoader classLoader, String[] locations, Class<?>... libraries)
+            throws IOException {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        List<String> digests = new ArrayList<>();
+        for (Class<?> library : libraries) {
+            CodeSource codeSource = library.getProtectionDomain().getCodeSource();
+            String jar = codeSource == null ? library.getName() : codeSource.getLocation().toString();
+            jar = jar.replaceAll("[!/]+$", "");
+            digests.add(jar.substring(jar.lastIndexOf('/') + 1));
+        }
+        for (String location : locations) {
+            for (Resource resource : resolver.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + location
+                    + "**")) {
+                if (resource.isReadable()) {
+                    try (InputStream inputStream = resource.getInputStream()) {
+                        digests.add(DigestUtils.md5DigestAsHex(StreamUtils.copyToByteArray(inputStream)));
+                    }
+                }
+            }
+        }
+        Collections.sort(digests);
+        return DigestUtils.md5DigestAsHex(String.join(",", digests).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Returns the stored song, mapped from its segment, or null if there isn't one.
+     */
+    public RenderedSong get(String key) {
+        Entry entry = index.get(key);
+        RenderedSong song = null;
+        if (entry != null) {
+            try {
+                song = map(entry);
+            } catch (IOException e) {
+                // the segment was deleted while we were looking it up
+                song = null;
+            }
+        }
+        if (song != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return song;
+    }
+
+    /**
+     * Appends a song to the store. A song that can't be written, say because the disk is full, is counted as a failed
+     * write and otherwise ignored; the record it left behind is overwritten by the next one.
+     *
+     * @return the stored song, mapped from its segment, or {@code song} itself if it wasn't stored
+     */
+    public synchronized RenderedSong put(String key, RenderedSong song) {
+        if (directory == null) {
+            return song;
+        }
+        try {
+            RenderedSong stored = map(append(key, song));
+            writes.increment();
+            return stored;
+        } catch (IOException e) {
+            failedWrites.increment();
+            return song;
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * The total size of the segment files, in bytes.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * How long it took to read the index when the store was opened.
+     */
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getFailedWriteCount() {
+        return failedWrites.sum();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        numbers.sort(null);
+
+        for (int number : numbers) {
+            Segment segment = openSegment(number);
+            long fileSize = Math.min(segment.channel.size(), Integer.MAX_VALUE);
+            // walking the headers through a mapping of the whole segment only touches the pages they are on
+            ByteBuffer records = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int position = 0;
+            while (position + HEADER_BYTES <= fileSize) {
+                int magic = records.getInt(position);
+                int keyLength = records.getInt(position + 4);
+                int eTagLength = records.getInt(position + 8);
+                int contentLength = records.getInt(position + 12);
+                long recordLength = (long) HEADER_BYTES + keyLength + eTagLength + contentLength;
+                if (magic != MAGIC || keyLength < 0 || eTagLength < 0 || contentLength < 0
+                        || position + recordLength > fileSize) {
+                    break;
+                }
+
+                byte[] names = new byte[keyLength + eTagLength];
+                records.position(position + HEADER_BYTES);
+                records.get(names);
+                String key = new String(names, 0, keyLength, StandardCharsets.UTF_8);
+                String eTag = new String(names, keyLength, eTagLength, StandardCharsets.UTF_8);
+                index.put(key, new Entry(segment, position + HEADER_BYTES + keyLength + eTagLength, contentLength,
+                        eTag));
+                position += recordLength;
+            }
+            if (position < fileSize) {
+                segment.channel.truncate(position);
+            }
+            segment.size = position;
+            totalBytes += position;
+            segments.addLast(segment);
+        }
+    }
+
+    private RenderedSong map(Entry entry) throws IOException {
+        RenderedSong song = entry.song;
+        if (song == null) {
+            ByteBuffer bytes = entry.segment.channel.map(FileChannel.MapMode.READ_ONLY, entry.position, entry.length);
+            song = RenderedSong.mapped(bytes, entry.eTag, entry.segment.file, entry.position);
+            entry.song = song;
+        }
+        return song;
+    }
+
+    private Entry append(String key, RenderedSong song) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] eTagBytes = song.getETag().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content = song.asByteBuffer();
+        long recordLength = HEADER_BYTES + keyBytes.length + eTagBytes.length + content.remaining();
+
+        Segment segment = segments.peekLast();
+        if (segment == null || (segment.size > 0 && segment.size + recordLength > segmentBytes)) {
+            segment = openSegment(segment == null ? 0 : segment.number + 1);
+            segments.addLast(segment);
+        }
+
+        long position = segment.size;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + eTagBytes.length);
+        header.putInt(0).putInt(keyBytes.length).putInt(eTagBytes.length).putInt(content.remaining())
+                .put(keyBytes).put(eTagBytes).flip();
+        long contentPosition = position + header.remaining();
+        writeFully(segment.channel, header, position);
+        writeFully(segment.channel, content, contentPosition);
+        segment.channel.force(false);
+        ByteBuffer magic = ByteBuffer.allocate(4).putInt(MAGIC);
+        magic.flip();
+        writeFully(segment.channel, magic, position);
+
+        segment.size += recordLength;
+        totalBytes += recordLength;
+        Entry entry = new Entry(segment, contentPosition, song.getContentLength(), song.getETag());
+        index.put(key, entry);
+
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            deleteSegment(segments.removeFirst());
+        }
+        return entry;
+    }
+
+    private Segment openSegment(int number) throws IOException {
+        Path file = directory.resolve(String.format("segment-%05d.dat", number));
+        return new Segment(number, file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        index.values().removeIf(entry -> entry.segment == segment);
+        totalBytes -= segment.size;
+        segment.channel.close();
+        Files.deleteIfExists(segment.file);
+        if (renderCache != null) {
+            renderCache.invalidateFile(segment.file);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static class Segment {
+        final int number;
+        final Path file;
+        final FileChannel channel;
+        long size;
+
+        Segment(int number, Path file, FileChannel channel) {
+            this.number = number;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private static class Entry {
+        final Segment segment;
+        final long position;
+        final int length;
+        final String eTag;
+        volatile RenderedSong song;
+
+        Entry(Segment segment, long position, int length, String eTag) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+            this.eTag = eTag;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.nerdery.soundchallenge.controllers;
+
+import com.nerdery.soundchallenge.audio.AudioRenderer;
+import com.nerdery.soundchallenge.models.RenderedSong;
+import com.nerdery.soundchallenge.services.AudioService;
+import com.nerdery.soundchallenge.services.MidiService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serves songs rendered to audio, for clients without a MIDI player.
+ */
+@Controller
+public class AudioController {
+
+    public static final String WAVE_MIME_TYPE = "audio/wav";
+    private MidiService midiService;
+    private AudioService audioService;
+
+    /**
+     * Serves a song as a WAV file. By default the whole song is rendered, and cached, before it is sent; with
+     * {@code stream=true} it is sent as it is synthesized, so playback can start right away. Whole renders can also be
+     * fetched in byte ranges.
+     */
+    @RequestMapping(value = "/audio/{name}.wav", method = RequestMethod.GET)
+    public void getWaveFile(@PathVariable("name") String filterName,
+                            @RequestParam(value = "stream", defaultValue = "false") boolean stream,
+                            WebRequest request, HttpServletRequest servletRequest,
+                            HttpServletResponse response)
+            throws IOException, InvalidMidiDataException {
+        if (midiService.isValidGenerator(filterName)) {
+            try {
+                if (stream) {
+                    streamWaveFile(filterName, response);
+                } else {
+                    sendWaveFile(filterName, request, servletRequest, response);
+                }
+            } catch (RejectedExecutionException | MidiUnavailableException e) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Audio rendering is unavailable");
+            }
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid MIDI generator");
+        }
+    }
+
+    private void sendWaveFile(String filterName, WebRequest request, HttpServletRequest servletRequest,
+                              HttpServletResponse response)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        RenderedSong song = audioService.renderAudio(filterName);
+        if (request.checkNotModified(song.getETag())) {
+            return;
+        }
+        SongResponses.send(song, WAVE_MIME_TYPE, servletRequest, response);
+    }
+
+    private void streamWaveFile(String filterName, HttpServletResponse response)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        try (AudioInputStream audioStream = audioService.openAudioStream(filterName)) {
+            response.setContentType(WAVE_MIME_TYPE);
+            response.setContentLengthLong(AudioRenderer.getWaveLength(audioStream));
+            try (OutputStream responseStream = response.getOutputStream()) {
+                audioService.writeWave(audioStream, responseStream);
+            }
+        }
+    }
+
+    @Inject
+    public void setMidiService(MidiService theMidiService) {
+        midiService = theMidiService;
+    }
+
+    @Inject
+    public void setAudioService(AudioService theAudioService) {
+        audioService = theAudioService;
+    }
+}
@@ -0,0 +1,195 @@
+package com.nerdery.soundchallenge.controllers;
+
+import com.nerdery.soundchallenge.audio.SynthesizerPool;
+import com.nerdery.soundchallenge.cache.RenderCache;
+import com.nerdery.soundchallenge.cache.RenderStore;
+import com.nerdery.soundchallenge.metrics.GeneratorMetrics;
+import com.nerdery.soundchallenge.metrics.MetricsRegistry;
+import com.nerdery.soundchallenge.metrics.PrometheusTextWriter;
+import com.nerdery.soundchallenge.services.AudioService;
+import com.nerdery.soundchallenge.services.MidiService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Serves the service's metrics in the Prometheus text format: per generator latencies and output, and the state of the
+ * render cache, the render store and the audio renderers.
+ */
+@Controller
+public class MetricsController {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private MetricsRegistry metricsRegistry;
+    private MidiService midiService;
+    private AudioService audioService;
+    private RenderCache renderCache;
+    private RenderStore renderStore;
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType(PrometheusTextWriter.CONTENT_TYPE);
+        try (Writer responseWriter = response.getWriter()) {
+            PrometheusTextWriter writer = new PrometheusTextWriter(responseWriter);
+            writeGeneratorMetrics(writer);
+            writeRenderMetrics(writer);
+            writeCacheMetrics(writer);
+            writeAudioMetrics(writer);
+        }
+    }
+
+    private void writeGeneratorMetrics(PrometheusTextWriter writer) throws IOException {
+        List<GeneratorMetrics> generators = new ArrayList<>(metricsRegistry.getAllGeneratorMetrics());
+        generators.sort(Comparator.comparing(GeneratorMetrics::getName));
+
+        writer.family("nerdsound_generation_seconds", "histogram",
+                "Time taken by each phase of making a song: building its tracks, encoding them, and rendering audio.");
+        for (GeneratorMetrics generator : generators) {
+            writer.histogram("nerdsound_generation_seconds", generator.getGenerateLatency(),
+                    "generator", generator.getName(), "phase", "generate");
+            writer.histogram("nerdsound_generation_seconds", generator.getEncodeLatency(),
+                    "generator", generator.getName(), "phase", "encode");
+            writer.histogram("nerdsound_generation_seconds", generator.getAudioLatency(),
+                    "generator", generator.getName(), "phase", "audio");
+        }
+
+        writer.family("nerdsound_generation_quantile_seconds", "gauge",
+                "Quantiles of the time taken by each phase of making a song, to within 1/16th.");
+        for (GeneratorMetrics generator : generators) {
+            writer.quantiles("nerdsound_generation_quantile_seconds", generator.getGenerateLatency(),
+                    "generator", generator.getName(), "phase", "generate");
+            writer.quantiles("nerdsound_generation_quantile_seconds", generator.getEncodeLatency(),
+                    "generator", generator.getName(), "phase", "encode");
+            writer.quantiles("nerdsound_generation_quantile_seconds", generator.getAudioLatency(),
+                    "generator", generator.getName(), "phase", "audio");
+        }
+
+        writer.family("nerdsound_generated_events_total", "counter", "MIDI events generated.");
+        for (GeneratorMetrics generator : generators) {
+            writer.sample("nerdsound_generated_events_total", generator.getEventCount(),
+                    "generator", generator.getName());
+        }
+        writer.family("nerdsound_encoded_bytes_total", "counter", "Bytes of MIDI files encoded.");
+        for (GeneratorMetrics generator : generators) {
+            writer.sample("nerdsound_encoded_bytes_total", generator.getByteCount(), "generator", generator.getName());
+        }
+        writer.family("nerdsound_generations_in_flight", "gauge", "Songs being generated right now.");
+        for (GeneratorMetrics generator : generators) {
+            writer.sample("nerdsound_generations_in_flight", generator.getInFlightCount(),
+                    "generator", generator.getName());
+        }
+    }
+
+    private void writeRenderMetrics(PrometheusTextWriter writer) throws IOException {
+        writer.family("nerdsound_renders_total", "counter", "Times a generator has actually been run.")
+                .sample("nerdsound_renders_total", midiService.getRenderCount());
+        writer.family("nerdsound_coalesced_renders_total", "counter",
+                "Requests answered by waiting on another request's render.")
+                .sample("nerdsound_coalesced_renders_total", midiService.getCoalescedRenderCount());
+        writer.family("nerdsound_renders_in_flight", "gauge", "Songs being rendered that other requests can wait on.")
+                .sample("nerdsound_renders_in_flight", midiService.getInFlightRenderCount());
+    }
+
+    private void writeCacheMetrics(PrometheusTextWriter writer) throws IOException {
+        long hits = renderCache.getHitCount();
+        long misses = renderCache.getMissCount();
+        writer.family("nerdsound_cache_requests_total", "counter", "Render cache lookups, by result.")
+                .sample("nerdsound_cache_requests_total", hits, "result", "hit")
+                .sample("nerdsound_cache_requests_total", misses, "result", "miss");
+        writer.family("nerdsound_cache_hit_ratio", "gauge", "Share of render cache lookups that were hits.")
+                .sample("nerdsound_cache_hit_ratio", hits + misses == 0 ? 0 : hits / (double) (hits + misses));
+        writer.family("nerdsound_cache_evictions_total", "counter", "Entries evicted from the render cache.")
+                .sample("nerdsound_cache_evictions_total", renderCache.getEvictionCount());
+        writer.family("nerdsound_cache_rejections_total", "counter",
+                "Renders the cache declined, being too large or too rarely requested.")
+                .sample("nerdsound_cache_rejections_total", renderCache.getRejectionCount());
+        writer.family("nerdsound_cache_entries", "gauge", "Entries in the render cache.")
+                .sample("nerdsound_cache_entries", renderCache.size());
+        writer.family("nerdsound_cache_bytes", "gauge", "Bytes held by the render cache.")
+                .sample("nerdsound_cache_bytes", renderCache.getWeightedSize());
+        writer.family("nerdsound_cache_max_bytes", "gauge", "Byte budget of the render cache.")
+                .sample("nerdsound_cache_max_bytes", renderCache.getMaxBytes());
+
+        long storeHits = renderStore.getHitCount();
+        long storeMisses = renderStore.getMissCount();
+        writer.family("nerdsound_store_requests_total", "counter", "Render store lookups, by result.")
+                .sample("nerdsound_store_requests_total", storeHits, "result", "hit")
+                .sample("nerdsound_store_requests_total", storeMisses, "result", "miss");
+        writer.family("nerdsound_store_hit_ratio", "gauge", "Share of render store lookups that were hits.")
+                .sample("nerdsound_store_hit_ratio",
+                        storeHits + storeMisses == 0 ? 0 : storeHits / (double) (storeHits + storeMisses));
+        writer.family("nerdsound_store_writes_total", "counter", "Renders appended to the render store, by result.")
+                .sample("nerdsound_store_writes_total", renderStore.getWriteCount(), "result", "ok")
+                .sample("nerdsound_store_writes_total", renderStore.getFailedWriteCount(), "result", "failed");
+        writer.family("nerdsound_store_entries", "gauge", "Entries in the render store's index.")
+                .sample("nerdsound_store_entries", renderStore.size());
+        writer.family("nerdsound_store_bytes", "gauge", "Bytes taken up by the render store's segments.")
+                .sample("nerdsound_store_bytes", renderStore.getTotalBytes());
+    }
+
+    private void writeAudioMetrics(PrometheusTextWriter writer) throws IOException {
+        writer.family("nerdsound_audio_renders_active", "gauge", "Audio renders running on the render pool.")
+                .sample("nerdsound_audio_renders_active", audioService.getActiveRenderCount());
+        writer.family("nerdsound_audio_renders_queued", "gauge", "Audio renders waiting for a render thread.")
+                .sample("nerdsound_audio_renders_queued", audioService.getQueuedRenderCount());
+        writer.family("nerdsound_audio_streams_open", "gauge", "Audio streams being sent.")
+                .sample("nerdsound_audio_streams_open", audioService.getOpenStreamCount());
+
+        SynthesizerPool pool = audioService.getSynthesizerPool();
+        if (pool == null) {
+            return;
+        }
+        writer.family("nerdsound_synthesizers", "gauge", "Pooled synthesizers, by state.")
+                .sample("nerdsound_synthesizers", pool.getIdleCount(), "state", "idle")
+                .sample("nerdsound_synthesizers", pool.getSize() - pool.getIdleCount(), "state", "borrowed");
+        writer.family("nerdsound_synthesizer_borrows_total", "counter", "Synthesizers borrowed from the pool.")
+                .sample("nerdsound_synthesizer_borrows_total", pool.getBorrowCount());
+        writer.family("nerdsound_synthesizer_borrow_timeouts_total", "counter",
+                "Borrows that gave up waiting for a synthesizer.")
+                .sample("nerdsound_synthesizer_borrow_timeouts_total", pool.getBorrowTimeoutCount());
+        writer.family("nerdsound_synthesizer_replacements_total", "counter",
+                "Synthesizers closed and replaced after an unfinished render.")
+                .sample("nerdsound_synthesizer_replacements_total", pool.getReplacementCount());
+        writer.family("nerdsound_synthesizer_replacement_failures_total", "counter",
+                "Synthesizers that could not be replaced, each of which shrank the pool.")
+                .sample("nerdsound_synthesizer_replacement_failures_total", pool.getFailedReplacementCount());
+        writer.family("nerdsound_synthesizer_wait_seconds_total", "counter", "Time spent waiting for a synthesizer.")
+                .sample("nerdsound_synthesizer_wait_seconds_total", pool.getTotalWaitNanos() / NANOS_PER_SECOND);
+        writer.family("nerdsound_synthesizer_wait_max_seconds", "gauge", "Longest wait for a synthesizer.")
+                .sample("nerdsound_synthesizer_wait_max_seconds", pool.getMaxWaitNanos() / NANOS_PER_SECOND);
+    }
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry theMetricsRegistry) {
+        metricsRegistry = theMetricsRegistry;
+    }
+
+    @Inject
+    public void setMidiService(MidiService theMidiService) {
+        midiService = theMidiService;
+    }
+
+    @Inject
+    public void setAudioService(AudioService theAudioService) {
+        audioService = theAudioService;
+    }
+
+    @Inject
+    public void setRenderCache(RenderCache theRenderCache) {
+        renderCache = theRenderCache;
+    }
+
+    @Inject
+    public void setRenderStore(RenderStore theRenderStore) {
+        renderStore = theRenderStore;
+    }
+}
@@ -1,18 +1,24 @@
 package com.nerdery.soundchallenge.controllers;
 
+import com.nerdery.soundchallenge.metrics.ServerTiming;
+import com.nerdery.soundchallenge.midi.SongPosition;
+import com.nerdery.soundchallenge.midi.SongVariant;
 import com.nerdery.soundchallenge.models.MidiGeneratorEntry;
+import com.nerdery.soundchallenge.models.RenderedSong;
 import com.nerdery.soundchallenge.services.MidiService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.sound.midi.InvalidMidiDataException;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,20 +34,47 @@ public class MidiController {
     @RequestMapping(value = "/", method = RequestMethod.GET)
     public String getIndex(Model model) {
         Stream<MidiGeneratorEntry> midiGenerators = midiService.getGenerators().stream().map((generator) ->
-                new MidiGeneratorEntry(generator.getName(), String.format("/midi/%s.mid", generator.getName())));
+                new MidiGeneratorEntry(generator.getName(), String.format("/midi/%s.mid", generator.getName()),
+                        String.format("/audio/%s.wav", generator.getName())));
 
         model.addAttribute("generators", midiGenerators.collect(Collectors.toList()));
         return "index";
     }
 
+    /**
+     * Serves a song as a MIDI file. With {@code from}, in ticks, bars or milliseconds (e.g. {@code from=8bars} or
+     * {@code from=1500ms}), only the rest of the song from that point is sent.
+     *
+     * The {@code Server-Timing} header says where the song came from and how long each step of getting it took.
+     */
     @RequestMapping(value = "/midi/{name}.mid", method = RequestMethod.GET)
-    public void getMidiFile(@PathVariable("name") String filterName, HttpServletResponse response)
+    public void getMidiFile(@PathVariable("name") String filterName,
+                            @RequestParam(value = "from", required = false) String from,
+                            @RequestParam(value = "transpose", required = false) Integer transpose,
+                            @RequestParam(value = "tempo", required = false) Integer tempo,
+                            @RequestParam(value = "voice", required = false) String voice,
+                            WebRequest request, HttpServletRequest servletRequest,
+                            HttpServletResponse response)
             throws IOException, InvalidMidiDataException {
         if (midiService.isValidGenerator(filterName)) {
-            try (OutputStream responseStream = response.getOutputStream()) {
-                response.setContentType(MIDI_MIME_TYPE);
-                midiService.generateSong(responseStream, filterName);
+            ServerTiming timing = new ServerTiming();
+            SongPosition position;
+            SongVariant variant;
+            try {
+                position = from == null ? null : SongPosition.parse(from);
+                variant = midiService.createVariant(transpose, tempo, voice);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
             }
+
+            RenderedSong song = midiService.renderSong(filterName, variant, position, timing);
+            response.setHeader(ServerTiming.HEADER, timing.toHeaderValue());
+            if (request.checkNotModified(song.getETag())) {
+                return;
+            }
+
+            SongResponses.send(song, MIDI_MIME_TYPE, servletRequest, response);
         } else {
             response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid MIDI generator");
         }
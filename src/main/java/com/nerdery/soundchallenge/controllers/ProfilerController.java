@@ -0,0 +1,98 @@
+package com.nerdery.soundchallenge.controllers;
+
+import com.nerdery.soundchallenge.metrics.CollapsedStacks;
+import com.nerdery.soundchallenge.metrics.StackSampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+
+/**
+ * Profiles the running service on demand, for when it is slow somewhere that a profiler can't be attached.
+ *
+ * A profile shows the service's internals and costs it CPU for as long as it runs, so the endpoint answers 404 unless
+ * {@code nerdsound.profiler.enabled} is set. With {@code nerdsound.profiler.token} set as well, a request must send
+ * that token in the {@code X-Profile-Token} header. Only one profile is taken at a time.
+ */
+@Controller
+public class ProfilerController {
+
+    static final String TOKEN_HEADER = "X-Profile-Token";
+
+    private StackSampler stackSampler;
+    private boolean enabled;
+    private byte[] token = new byte[0];
+
+    /**
+     * Samples the service's threads for {@code seconds} at up to {@code rate} samples a second, and sends the stacks
+     * seen in the collapsed format, ready for {@code flamegraph.pl}. With {@code waiting=true}, threads that are
+     * blocked or waiting are sampled as well as those that are running. The number of samples taken, and the share of
+     * the time spent taking them, are sent in the {@code X-Profile-Samples} and {@code X-Profile-Overhead} headers.
+     */
+    @RequestMapping(value = "/admin/profile", method = RequestMethod.GET)
+    public void getProfile(@RequestParam(value = "seconds", defaultValue = "10") int seconds,
+                           @RequestParam(value = "rate", defaultValue = "100") int rate,
+                           @RequestParam(value = "waiting", defaultValue = "false") boolean waiting,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!enabled) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (token.length > 0 && !isAuthorized(request.getHeader(TOKEN_HEADER))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "A valid " + TOKEN_HEADER + " header is required");
+            return;
+        }
+
+        CollapsedStacks stacks;
+        try {
+            stacks = stackSampler.sample(seconds, rate, waiting);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Interrupted while profiling");
+            return;
+        }
+        if (stacks == null) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "A profile is already being taken");
+            return;
+        }
+
+        response.setContentType("text/plain; charset=utf-8");
+        response.setHeader("X-Profile-Samples", Integer.toString(stacks.getSampleCount()));
+        response.setHeader("X-Profile-Overhead", String.format(Locale.ROOT, "%.4f", stacks.getOverhead()));
+        try (Writer writer = response.getWriter()) {
+            stacks.write(writer);
+        }
+    }
+
+    @Inject
+    public void setStackSampler(StackSampler theStackSampler) {
+        stackSampler = theStackSampler;
+    }
+
+    @Value("${nerdsound.profiler.enabled:false}")
+    public void setEnabled(boolean theEnabled) {
+        enabled = theEnabled;
+    }
+
+    @Value("${nerdsound.profiler.token:}")
+    public void setToken(String theToken) {
+        token = theToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean isAuthorized(String requestToken) {
+        return requestToken != null && MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package com.nerdery.soundchallenge.controllers;
+
+import com.nerdery.soundchallenge.models.RenderedSong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends rendered songs, whole or as a single byte range. Songs that were read back from the render store are handed
+ * to Tomcat's sendfile support when the connector has it, so that the bytes go from the page cache to the socket
+ * without passing through the JVM; everything else is written through the response stream.
+ */
+final class SongResponses {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // below this, as with Tomcat's own default servlet, a plain write is cheaper than setting up a sendfile
+    private static final int SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private SongResponses() {
+    }
+
+    /**
+     * Sends {@code song}, or the part of it asked for by a {@code Range} header. Only single ranges are supported;
+     * any other {@code Range} header is ignored and the whole song is sent, as it is for an invalid range, such as
+     * {@code bytes=5-2}, and when an {@code If-Range} header names another version of the song. A valid range that
+     * starts past the end of the song gets a 416.
+     */
+    static void send(RenderedSong song, String contentType, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        int length = song.getContentLength();
+        int start = 0;
+        int end = length;
+        response.setHeader("Accept-Ranges", "bytes");
+
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        Matcher matcher = range == null ? null : BYTE_RANGE.matcher(range.trim());
+        if (matcher != null && matcher.matches() && isValid(matcher)
+                && (ifRange == null || ifRange.equals(song.getETag()))) {
+            if (matcher.group(1).isEmpty()) {
+                start = (int) Math.max(0, length - parseBound(matcher.group(2)));
+            } else {
+                start = (int) Math.min(parseBound(matcher.group(1)), length);
+                if (!matcher.group(2).isEmpty()) {
+                    end = (int) Math.min(parseBound(matcher.group(2)), length - 1L) + 1;
+                }
+            }
+            if (start >= end) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setContentLength(0);
+                // committed, so that it goes out as it is rather than through the error page
+                response.flushBuffer();
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", String.format("bytes %d-%d/%d", start, end - 1, length));
+        }
+
+        response.setContentType(contentType);
+        response.setContentLength(end - start);
+        Path file = song.getFile();
+        if (file != null && end - start >= SENDFILE_MIN_BYTES
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && Files.isReadable(file)) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, song.getFileOffset() + start);
+            request.setAttribute(SENDFILE_END, song.getFileOffset() + end);
+            return;
+        }
+        try (OutputStream responseStream = response.getOutputStream()) {
+            song.writeTo(responseStream, start, end - start);
+        }
+    }
+
+    private static boolean isValid(Matcher range) {
+        String first = range.group(1);
+        String last = range.group(2);
+        if (first.isEmpty() || last.isEmpty()) {
+            return !(first.isEmpty() && last.isEmpty());
+        }
+        return parseBound(last) >= parseBound(first);
+    }
+
+    private static long parseBound(String bound) {
+        // anything too long for a long is past the end of any song
+        return bound.length() > 18 ? Long.MAX_VALUE : Long.parseLong(bound);
+    }
+}
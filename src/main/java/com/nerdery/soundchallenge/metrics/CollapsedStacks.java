@@ -0,0 +1,60 @@
+package com.nerdery.soundchallenge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The stacks seen by a {@link StackSampler}, in the collapsed format read by flame graph tools such as
+ * {@code flamegraph.pl} and speedscope: one line per distinct stack, its frames from the root to the leaf separated by
+ * semicolons, followed by the number of times it was seen.
+ */
+public class CollapsedStacks {
+
+    private final Map<String, Integer> counts = new TreeMap<>();
+    private int sampleCount;
+    private long samplingNanos;
+    private long elapsedNanos;
+
+    void add(String stack) {
+        counts.merge(stack, 1, Integer::sum);
+    }
+
+    void sampled(long nanos) {
+        sampleCount++;
+        samplingNanos += nanos;
+    }
+
+    void finished(long nanos) {
+        elapsedNanos = nanos;
+    }
+
+    /**
+     * The number of times the threads were sampled.
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * The share of the profile's time that was spent taking samples, during which every thread was held at a
+     * safepoint.
+     */
+    public double getOverhead() {
+        return elapsedNanos == 0 ? 0 : samplingNanos / (double) elapsedNanos;
+    }
+
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    public void write(Writer writer) throws IOException {
+        for (Map.Entry<String, Integer> stack : counts.entrySet()) {
+            writer.write(stack.getKey());
+            writer.write(' ');
+            writer.write(Integer.toString(stack.getValue()));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.nerdery.soundchallenge.metrics;
+
+import com.nerdery.soundchallenge.services.midigenerators.GenerationObserver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one generator has been up to: how long it takes to build and to encode its songs, and to render them to
+ * audio, how many events and bytes it has produced, and how many of its songs are being generated right now.
+ */
+public class GeneratorMetrics implements GenerationObserver {
+
+    private final String name;
+    private final LatencyHistogram generateLatency = new LatencyHistogram();
+    private final LatencyHistogram encodeLatency = new LatencyHistogram();
+    private final LatencyHistogram audioLatency = new LatencyHistogram();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public GeneratorMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void generated(long nanos, int eventCount) {
+        generateLatency.record(nanos);
+        events.add(eventCount);
+    }
+
+    @Override
+    public void encoded(long nanos, int byteCount) {
+        encodeLatency.record(nanos);
+        bytes.add(byteCount);
+    }
+
+    public void audioRendered(long nanos) {
+        audioLatency.record(nanos);
+    }
+
+    public void started() {
+        inFlight.incrementAndGet();
+    }
+
+    public void finished() {
+        inFlight.decrementAndGet();
+    }
+
+    public LatencyHistogram getGenerateLatency() {
+        return generateLatency;
+    }
+
+    public LatencyHistogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    public LatencyHistogram getAudioLatency() {
+        return audioLatency;
+    }
+
+    public long getEventCount() {
+        return events.sum();
+    }
+
+    public long getByteCount() {
+        return bytes.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+}
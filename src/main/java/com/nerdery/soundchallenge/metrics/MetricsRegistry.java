@@ -0,0 +1,25 @@
+package com.nerdery.soundchallenge.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link GeneratorMetrics} of every generator that has been run, for the metrics endpoint to report.
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Map<String, GeneratorMetrics> generators = new ConcurrentHashMap<>();
+
+    public GeneratorMetrics getGeneratorMetrics(String generatorName) {
+        return generators.computeIfAbsent(generatorName, GeneratorMetrics::new);
+    }
+
+    public Collection<GeneratorMetrics> getAllGeneratorMetrics() {
+        return Collections.unmodifiableCollection(generators.values());
+    }
+}
@@ -0,0 +1,101 @@
+package com.nerdery.soundchallenge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4. Each family is started with
+ * {@link #family} and followed by its samples; labels are given as alternating names and values.
+ */
+public class PrometheusTextWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // the bucket bounds reported for latency histograms, in seconds
+    private static final double[] LATENCY_BOUNDS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Writer writer;
+
+    public PrometheusTextWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public PrometheusTextWriter family(String name, String type, String help) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " " + type + "\n");
+        return this;
+    }
+
+    public PrometheusTextWriter sample(String name, double value, String... labels) throws IOException {
+        writer.write(name);
+        if (labels.length > 0) {
+            writer.write('{');
+            for (int i = 0; i < labels.length; i += 2) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(labels[i] + "=\"" + escape(labels[i + 1]) + "\"");
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(format(value));
+        writer.write('\n');
+        return this;
+    }
+
+    /**
+     * Writes the samples of a histogram family, in seconds, with cumulative buckets read from {@code histogram}.
+     */
+    public PrometheusTextWriter histogram(String name, LatencyHistogram histogram, String... labels)
+            throws IOException {
+        for (double bound : LATENCY_BOUNDS) {
+            sample(name + "_bucket", histogram.getCountAtOrBelow((long) (bound * NANOS_PER_SECOND)),
+                    withLabel(labels, "le", format(bound)));
+        }
+        long count = histogram.getCount();
+        sample(name + "_bucket", count, withLabel(labels, "le", "+Inf"));
+        sample(name + "_sum", histogram.getSumNanos() / NANOS_PER_SECOND, labels);
+        return sample(name + "_count", count, labels);
+    }
+
+    /**
+     * Writes the samples of a gauge family holding the quantiles and the maximum of {@code histogram}, in seconds.
+     * These are exact to within the histogram's buckets, where quantiles worked out from the histogram family are
+     * only as good as its bounds.
+     */
+    public PrometheusTextWriter quantiles(String name, LatencyHistogram histogram, String... labels)
+            throws IOException {
+        for (double quantile : QUANTILES) {
+            sample(name, histogram.getValueAtQuantile(quantile) / NANOS_PER_SECOND,
+                    withLabel(labels, "quantile", format(quantile)));
+        }
+        return sample(name, histogram.getMaxNanos() / NANOS_PER_SECOND, withLabel(labels, "quantile", "1"));
+    }
+
+    private static String[] withLabel(String[] labels, String name, String value) {
+        String[] extended = new String[labels.length + 2];
+        System.arraycopy(labels, 0, extended, 0, labels.length);
+        extended[labels.length] = name;
+        extended[labels.length + 1] = value;
+        return extended;
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
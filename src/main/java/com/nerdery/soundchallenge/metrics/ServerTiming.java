@@ -0,0 +1,66 @@
+package com.nerdery.soundchallenge.metrics;
+
+import com.nerdery.soundchallenge.services.midigenerators.GenerationObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ServerTiming collects what happened while answering one request, for its {@code Server-Timing} response header:
+ * where the song came from, and how long each step took. Browser developer tools show the header alongside the
+ * request's own timings.
+ *
+ * As a {@link GenerationObserver} it records the generation and encoding phases of a song generated for the request.
+ * It is meant to be used by one request at a time, and isn't thread-safe.
+ */
+public class ServerTiming implements GenerationObserver {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final long startNanos = System.nanoTime();
+    private final List<String> metrics = new ArrayList<>();
+
+    /**
+     * Records a step that took {@code nanos}.
+     */
+    public ServerTiming add(String name, long nanos) {
+        metrics.add(name + ";dur=" + formatMillis(nanos));
+        return this;
+    }
+
+    /**
+     * Records a step with no duration, such as where a song was found.
+     */
+    public ServerTiming add(String name, String description) {
+        metrics.add(name + ";desc=\"" + description.replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+        return this;
+    }
+
+    @Override
+    public void generated(long nanos, int events) {
+        add("generate", nanos);
+    }
+
+    @Override
+    public void encoded(long nanos, int bytes) {
+        add("encode", nanos);
+    }
+
+    /**
+     * The header value: every recorded step, followed by the total time since this was created.
+     */
+    public String toHeaderValue() {
+        StringBuilder value = new StringBuilder();
+        for (String metric : metrics) {
+            value.append(metric).append(", ");
+        }
+        return value.append("total;dur=").append(formatMillis(System.nanoTime() - startNanos)).toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,133 @@
+package com.nerdery.soundchallenge.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StackSampler profiles the running service by sampling thread stacks through the {@link ThreadMXBean}, so that hot
+ * paths can be found on live traffic without attaching a profiler.
+ *
+ * Only threads that are running the service's own code are sampled, such as request threads generating a song and
+ * the audio render threads, and their stacks are cut off below the outermost {@code com.nerdery.soundchallenge}
+ * frame, leaving out the container's frames. Frames above it are kept whatever their package, so that time spent in
+ * the JDK on the service's behalf still shows up under the code that asked for it.
+ *
+ * Each sample briefly stops every thread at a safepoint. To keep that from slowing the service down, samples are
+ * spaced out so that no more than {@code nerdsound.profiler.maxOverhead} of the time is spent taking them, whatever
+ * rate was asked for. Only one profile is taken at a time.
+ */
+@Component
+public class StackSampler {
+
+    private static final String PACKAGE_PREFIX = "com.nerdery.soundchallenge.";
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    private final int maxSeconds;
+    private final int maxRate;
+    private final int maxDepth;
+    private final double maxOverhead;
+
+    /**
+     * @param maxSeconds  the longest profile that may be taken
+     * @param maxRate     the most samples that may be asked for per second
+     * @param maxDepth    the most frames of each stack that are looked at, from the leaf
+     * @param maxOverhead the largest share of the time that may be spent taking samples
+     */
+    @Inject
+    public StackSampler(@Value("${nerdsound.profiler.maxSeconds:60}") int maxSeconds,
+                        @Value("${nerdsound.profiler.maxRate:1000}") int maxRate,
+                        @Value("${nerdsound.profiler.maxDepth:256}") int maxDepth,
+                        @Value("${nerdsound.profiler.maxOverhead:0.02}") double maxOverhead) {
+        this.maxSeconds = maxSeconds;
+        this.maxRate = maxRate;
+        this.maxDepth = maxDepth;
+        this.maxOverhead = maxOverhead;
+    }
+
+    /**
+     * Samples the service's threads on the calling thread for {@code seconds}.
+     *
+     * @param rate    the samples to take per second, if the overhead allows
+     * @param waiting whether to sample threads that are blocked or waiting too, for a wall-clock profile, rather
+     *                than only those that are runnable
+     * @return the stacks seen, or null if another profile is being taken
+     * @throws IllegalArgumentException if {@code seconds} or {@code rate} is out of range
+     */
+    public CollapsedStacks sample(int seconds, int rate, boolean waiting) throws InterruptedException {
+        if (seconds < 1 || seconds > maxSeconds) {
+            throw new IllegalArgumentException(String.format("seconds must be from 1 to %d", maxSeconds));
+        }
+        if (rate < 1 || rate > maxRate) {
+            throw new IllegalArgumentException(String.format("rate must be from 1 to %d", maxRate));
+        }
+        if (!sampling.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            CollapsedStacks stacks = new CollapsedStacks();
+            long ownId = Thread.currentThread().getId();
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            long next = start;
+            while (next < end) {
+                long sampleStart = System.nanoTime();
+                for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds(), maxDepth)) {
+                    if (thread != null && thread.getThreadId() != ownId
+                            && (waiting || thread.getThreadState() == Thread.State.RUNNABLE)) {
+                        String stack = collapse(thread.getStackTrace());
+                        if (stack != null) {
+                            stacks.add(stack);
+                        }
+                    }
+                }
+                long sampleNanos = System.nanoTime() - sampleStart;
+                stacks.sampled(sampleNanos);
+
+                next = Math.max(next + interval, sampleStart + (long) (sampleNanos / maxOverhead));
+                long sleep = Math.min(next, end) - System.nanoTime();
+                if (sleep > 0) {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+            }
+            stacks.finished(System.nanoTime() - start);
+            return stacks;
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    /**
+     * Joins the frames of a stack from the outermost frame of the service's own code to the leaf, or returns null if
+     * there is none.
+     */
+    private static String collapse(StackTraceElement[] frames) {
+        int outermost = frames.length - 1;
+        while (outermost >= 0 && !frames[outermost].getClassName().startsWith(PACKAGE_PREFIX)) {
+            outermost--;
+        }
+        if (outermost < 0) {
+            return null;
+        }
+
+        StringBuilder stack = new StringBuilder();
+        for (int i = outermost; i >= 0; i--) {
+            if (i < outermost) {
+                stack.append(';');
+            }
+            // semicolons and spaces would be read as separators
+            stack.append(frames[i].getClassName().replace(' ', '_')).append('.')
+                    .append(frames[i].getMethodName().replace(';', '_').replace(' ', '_'));
+        }
+        return stack.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.nerdery.soundchallenge.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EventTable is a whole song held as {@link MidiEventBuffer}s, one per track, along with its resolution. A table read
+ * from a file is already in playback order and is never changed afterwards, so one table can be shared by any number
+ * of threads writing it out or deriving other tables from it.
+ */
+public class EventTable {
+
+    private final int resolution;
+    private final List<MidiEventBuffer> tracks;
+
+    public EventTable(int resolution, List<MidiEventBuffer> tracks) {
+        this.resolution = resolution;
+        this.tracks = Collections.unmodifiableList(tracks);
+    }
+
+    /**
+     * Reads a Standard MIDI File timed in ticks per quarter note.
+     */
+    public static EventTable read(InputStream inputStream) throws IOException, InvalidMidiDataException {
+        Sequence sequence = MidiSystem.getSequence(inputStream);
+        if (sequence.getDivisionType() != Sequence.PPQ) {
+            throw new InvalidMidiDataException("Can only read songs timed in ticks per quarter note");
+        }
+
+        List<MidiEventBuffer> tracks = new ArrayList<>(sequence.getTracks().length);
+        for (Track track : sequence.getTracks()) {
+            MidiEventBuffer buffer = new MidiEventBuffer();
+            for (int i = 0; i < track.size(); i++) {
+                buffer.addMessage(track.get(i).getTick(), track.get(i).getMessage());
+            }
+            tracks.add(buffer);
+        }
+        return new EventTable(sequence.getResolution(), tracks);
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public List<MidiEventBuffer> getTracks() {
+        return tracks;
+    }
+
+    /**
+     * Writes the table as a type 1 Standard MIDI File.
+     *
+     * @return the number of bytes written
+     */
+    public int write(OutputStream outputStream) throws IOException {
+        return new MidiFileWriter().write(outputStream, resolution, tracks);
+    }
+}
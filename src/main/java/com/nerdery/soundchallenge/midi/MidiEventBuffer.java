@@ -0,0 +1,247 @@
+package com.nerdery.soundchallenge.midi;
+
+import javax.sound.midi.*;
+import java.util.Arrays;
+
+/**
+ * MidiEventBuffer is a compact, append-only list of the events in one MIDI track. It stands in for
+ * {@link javax.sound.midi.Track} while a song is being generated, without allocating a message and an event object
+ * for every note.
+ *
+ * Each event is packed into a single {@code long}: the tick in the high bits, then the order the event was added in,
+ * then the status and data bytes. Sorting the packed values puts the events in the order that {@link Track} would keep
+ * them: by tick, with events on the same tick in the order they were added. The end of track marker is kept apart and
+ * always comes last. Meta and sysex messages keep their bytes in a side table, referenced from the data bytes.
+ */
+public class MidiEventBuffer {
+
+    public static final int META = 0xFF;
+    public static final int SYSEX = 0xF0;
+    public static final int END_OF_TRACK = 0x2F;
+
+    public static final long MAX_TICK = (1L << 21) - 1;
+    public static final int MAX_EVENTS = 1 << 18;
+
+    private static final int MESSAGE_BITS = 24;
+    private static final int ORDER_BITS = 18;
+    private static final int TICK_SHIFT = MESSAGE_BITS + ORDER_BITS;
+    private static final int MAX_PAYLOADS = 1 << 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] events = new long[INITIAL_CAPACITY];
+    private int size;
+    private byte[][] payloads = new byte[4][];
+    private int payloadCount;
+    private long endTick;
+    private boolean sorted = true;
+
+    public void addChannelMessage(long tick, int command, int channel, int data1, int data2)
+            throws InvalidMidiDataException {
+        if (command < ShortMessage.NOTE_OFF || command >= SYSEX || (command & 0x0F) != 0) {
+            throw new InvalidMidiDataException("command out of range: 0x" + Integer.toHexString(command));
+        }
+        if ((channel & 0xFFFFFFF0) != 0) {
+            throw new InvalidMidiDataException("channel out of range: " + channel);
+        }
+        addShortMessage(tick, command | channel, data1, data2);
+    }
+
+    public void addShortMessage(long tick, int status, int data1, int data2) throws InvalidMidiDataException {
+        if (status < ShortMessage.NOTE_OFF || status >= SYSEX) {
+            throw new InvalidMidiDataException("Invalid status byte for short message: 0x"
+                    + Integer.toHexString(status));
+        }
+        checkDataByte(data1);
+        checkDataByte(data2);
+        add(tick, status | (data1 << 8) | (data2 << 16));
+    }
+
+    /**
+     * Adds a meta message. The payload is stored with the meta type in front of it.
+     */
+    public void addMetaMessage(long tick, int type, byte[] payload) throws InvalidMidiDataException {
+        if (type >= 128 || type < 0) {
+            throw new InvalidMidiDataException("Invalid meta event with type " + type);
+        }
+        if (type == END_OF_TRACK) {
+            endTrack(tick);
+        } else {
+            byte[] message = new byte[payload.length + 1];
+            message[0] = (byte) type;
+            System.arraycopy(payload, 0, message, 1, payload.length);
+            add(tick, META | (addPayload(message) << 8));
+        }
+    }
+
+    /**
+     * Adds a system exclusive message. As with {@link SysexMessage#setMessage(byte[], int)}, the message includes its
+     * status byte.
+     */
+    public void addSysexMessage(long tick, byte[] message) throws InvalidMidiDataException {
+        if (message.length == 0 || (message[0] & 0xFF) != SYSEX) {
+            throw new InvalidMidiDataException("Invalid status byte for sysex message");
+        }
+        add(tick, SYSEX | (addPayload(message.clone()) << 8));
+    }
+
+    /**
+     * Adds a javax.sound.midi message of any kind.
+     */
+    public void addMessage(long tick, MidiMessage message) throws InvalidMidiDataException {
+        if (message instanceof MetaMessage) {
+            MetaMessage metaMessage = (MetaMessage) message;
+            addMetaMessage(tick, metaMessage.getType(), metaMessage.getData());
+        } else if (message instanceof SysexMessage) {
+            addSysexMessage(tick, message.getMessage());
+        } else {
+            ShortMessage shortMessage = (ShortMessage) message;
+            addShortMessage(tick, shortMessage.getStatus(), shortMessage.getData1(), shortMessage.getData2());
+        }
+    }
+
+    /**
+     * Moves the end of track marker out to {@code tick}, if it is not there already.
+     */
+    public void endTrack(long tick) {
+        endTick = Math.max(endTick, tick);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTick(int index) {
+        return events[index] >>> TICK_SHIFT;
+    }
+
+    public int getStatus(int index) {
+        return (int) events[index] & 0xFF;
+    }
+
+    /**
+     * The first data byte of a short message, or the type of a meta message.
+     */
+    public int getData1(int index) {
+        if (getStatus(index) == META) {
+            return payloads[getPayloadIndex(index)][0];
+        }
+        return ((int) events[index] >> 8) & 0xFF;
+    }
+
+    public int getData2(int index) {
+        return ((int) events[index] >> 16) & 0xFF;
+    }
+
+    /**
+     * The payload of a meta message, or the complete message of a sysex message.
+     */
+    public byte[] getData(int index) {
+        byte[] message = payloads[getPayloadIndex(index)];
+        return getStatus(index) == META ? Arrays.copyOfRange(message, 1, message.length) : message;
+    }
+
+    /**
+     * The length of the stored bytes of a meta or sysex message. Meta messages are stored as the meta type followed by
+     * the payload, and sysex messages as the complete message, so in both cases the first byte is not data.
+     */
+    public int getMessageLength(int index) {
+        return payloads[getPayloadIndex(index)].length;
+    }
+
+    /**
+     * Copies the stored bytes of a meta or sysex message, starting at {@code from}, into {@code destination}.
+     *
+     * @return the number of bytes copied
+     */
+    public int copyMessageBytes(int index, int from, byte[] destination, int offset) {
+        byte[] message = payloads[getPayloadIndex(index)];
+        System.arraycopy(message, from, destination, offset, message.length - from);
+        return message.length - from;
+    }
+
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * Puts the buffer into playback order. Events are nearly always added in tick order, in which case this does
+     * nothing at all.
+     */
+    public void sort() {
+        if (!sorted) {
+            Arrays.sort(events, 0, size);
+            sorted = true;
+        }
+    }
+
+    /**
+     * Copies the buffer into a javax.sound.midi {@link Track}, for writing through {@link MidiSystem}.
+     */
+    public void copyTo(Track track) throws InvalidMidiDataException {
+        sort();
+        for (int i = 0; i < size; i++) {
+            int status = getStatus(i);
+            MidiMessage message;
+            if (status == META) {
+                byte[] payload = getData(i);
+                MetaMessage metaMessage = new MetaMessage();
+                metaMessage.setMessage(getData1(i), payload, payload.length);
+                message = metaMessage;
+            } else if (status == SYSEX) {
+                byte[] data = getData(i);
+                SysexMessage sysexMessage = new SysexMessage();
+                sysexMessage.setMessage(data, data.length);
+                message = sysexMessage;
+            } else {
+                ShortMessage shortMessage = new ShortMessage();
+                shortMessage.setMessage(status, getData1(i), getData2(i));
+                message = shortMessage;
+            }
+            track.add(new MidiEvent(message, getTick(i)));
+        }
+
+        MetaMessage endOfTrack = new MetaMessage();
+        endOfTrack.setMessage(END_OF_TRACK, new byte[0], 0);
+        track.add(new MidiEvent(endOfTrack, endTick));
+    }
+
+    private void add(long tick, int message) throws InvalidMidiDataException {
+        if (tick < 0 || tick > MAX_TICK) {
+            throw new InvalidMidiDataException("tick out of range: " + tick);
+        }
+        if (size == MAX_EVENTS) {
+            throw new InvalidMidiDataException("Too many events in track: " + size);
+        }
+        if (size == events.length) {
+            events = Arrays.copyOf(events, size * 2);
+        }
+
+        long event = (tick << TICK_SHIFT) | ((long) size << MESSAGE_BITS) | message;
+        if (size > 0 && event < events[size - 1]) {
+            sorted = false;
+        }
+        events[size++] = event;
+        endTrack(tick);
+    }
+
+    private int addPayload(byte[] message) throws InvalidMidiDataException {
+        if (payloadCount == MAX_PAYLOADS) {
+            throw new InvalidMidiDataException("Too many meta and sysex events in track: " + payloadCount);
+        }
+        if (payloadCount == payloads.length) {
+            payloads = Arrays.copyOf(payloads, payloadCount * 2);
+        }
+        payloads[payloadCount] = message;
+        return payloadCount++;
+    }
+
+    private int getPayloadIndex(int index) {
+        return ((int) events[index] >> 8) & 0xFFFF;
+    }
+
+    private static void checkDataByte(int value) throws InvalidMidiDataException {
+        if (value < 0 || value > 127) {
+            throw new InvalidMidiDataException("Invalid data value: " + value);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.nerdery.soundchallenge.midi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MidiFileWriter encodes type 1 Standard MIDI Files straight from {@link MidiEventBuffer}s, without building a
+ * {@link javax.sound.midi.Sequence}. Its output is byte-for-byte what {@link javax.sound.midi.MidiSystem#write}
+ * produces for the same events: variable-length delta times, running status for channel messages, and one MTrk chunk
+ * per track.
+ *
+ * A writer reuses its chunk buffer from track to track, so it should not be shared between threads.
+ */
+public class MidiFileWriter {
+
+    private static final int MTHD_MAGIC = 0x4d546864;
+    private static final int MTRK_MAGIC = 0x4d54726b;
+    private static final int HEADER_LENGTH = 6;
+    private static final int TYPE_1 = 1;
+
+    private byte[] buffer = new byte[4096];
+    private int position;
+
+    /**
+     * Writes the tracks to the stream as a type 1 file with the given ticks per quarter note.
+     *
+     * @return the number of bytes written
+     */
+    public int write(OutputStream outputStream, int resolution, List<MidiEventBuffer> tracks) throws IOException {
+        if (tracks.isEmpty()) {
+            throw new IllegalArgumentException("Could not write MIDI file");
+        }
+
+        position = 0;
+        writeInt(MTHD_MAGIC);
+        writeInt(HEADER_LENGTH);
+        writeShort(TYPE_1);
+        writeShort(tracks.size());
+        writeShort(resolution);
+        outputStream.write(buffer, 0, position);
+        int bytesWritten = position;
+
+        for (MidiEventBuffer track : tracks) {
+            bytesWritten += writeTrack(outputStream, track);
+        }
+        return bytesWritten;
+    }
+
+    private int writeTrack(OutputStream outputStream, MidiEventBuffer track) throws IOException {
+        track.sort();
+
+        // leave room for the chunk header, which needs the length of the encoded events
+        position = 8;
+        long currentTick = 0;
+        int runningStatus = -1;
+
+        for (int i = 0; i < track.size(); i++) {
+            long tick = track.getTick(i);
+            int status = track.getStatus(i);
+            writeVarInt(tick - currentTick);
+            currentTick = tick;
+
+            if (status == MidiEventBuffer.META || status == MidiEventBuffer.SYSEX) {
+                // meta messages are stored with their type first, sysex messages with their status byte first
+                int dataLength = track.getMessageLength(i) - 1;
+                writeByte(status);
+                if (status == MidiEventBuffer.META) {
+                    writeByte(track.getData1(i));
+                }
+                writeVarInt(dataLength);
+                ensureCapacity(dataLength);
+                position += track.copyMessageBytes(i, 1, buffer, position);
+                runningStatus = status;
+            } else {
+                if (status != runningStatus) {
+                    writeByte(status);
+                    runningStatus = status;
+                }
+                writeByte(track.getData1(i));
+                if (hasTwoDataBytes(status)) {
+                    writeByte(track.getData2(i));
+                }
+            }
+        }
+
+        writeVarInt(Math.max(track.getEndTick() - currentTick, 0));
+        writeByte(MidiEventBuffer.META);
+        writeByte(MidiEventBuffer.END_OF_TRACK);
+        writeByte(0);
+
+        int length = position - 8;
+        position = 0;
+        writeInt(MTRK_MAGIC);
+        writeInt(length);
+        outputStream.write(buffer, 0, length + 8);
+        return length + 8;
+    }
+
+    private static boolean hasTwoDataBytes(int status) {
+        int command = status & 0xF0;
+        return command != 0xC0 && command != 0xD0;
+    }
+
+    private void writeVarInt(long value) {
+        int shift = 0;
+        while (shift < 63 && (value >>> (shift + 7)) != 0) {
+            shift += 7;
+        }
+        while (shift > 0) {
+            writeByte((int) ((value >>> shift) & 0x7F) | 0x80);
+            shift -= 7;
+        }
+        writeByte((int) (value & 0x7F));
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value);
+    }
+
+    private void writeShort(int value) {
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int added) {
+        if (position + added > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + added));
+        }
+    }
+}
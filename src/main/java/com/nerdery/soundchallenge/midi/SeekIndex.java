@@ -0,0 +1,266 @@
+package com.nerdery.soundchallenge.midi;
+
+import javax.sound.midi.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SeekIndex finds where a song is at any tick, bar or time, so that the rest of it can be sent as a file of its own.
+ * Each track's events are kept in tick order, next to an index of the events that set up state (tempo, programs,
+ * controllers, sysex and other meta messages) and an index of its notes, so that a seek only binary searches and then
+ * touches the events it needs: the state set up before the seek, the notes still sounding across it, and the rest of
+ * the song.
+ *
+ * A suffix starts with the state it needs, all at tick 0, followed by a note on for every note that is still
+ * sounding; the note offs for those come along with the rest of the song. A note that ends right where the suffix
+ * starts isn't sounding, so its note off is left out, and every note off in a suffix matches a note on before it.
+ */
+public class SeekIndex {
+
+    private static final int TEMPO_TYPE = 0x51;
+    private static final int TIME_SIGNATURE_TYPE = 0x58;
+    private static final int DEFAULT_TEMPO = 500000;
+
+    private final int resolution;
+    private final List<TrackIndex> tracks = new ArrayList<>();
+
+    private long[] tempoTicks = {0};
+    private long[] tempoMicroseconds = {0};
+    private int[] tempos = {DEFAULT_TEMPO};
+
+    private long[] signatureTicks = {0};
+    private long[] signatureBars = {0};
+    private long[] ticksPerBar;
+
+    public SeekIndex(Sequence sequence) throws InvalidMidiDataException {
+        if (sequence.getDivisionType() != Sequence.PPQ) {
+            throw new InvalidMidiDataException("Can only seek in songs timed in ticks per quarter note");
+        }
+        resolution = sequence.getResolution();
+        ticksPerBar = new long[]{4L * resolution};
+
+        List<MidiEvent> tempoChanges = new ArrayList<>();
+        List<MidiEvent> signatureChanges = new ArrayList<>();
+        for (Track track : sequence.getTracks()) {
+            tracks.add(new TrackIndex(track, tempoChanges, signatureChanges));
+        }
+        // stable, so that on the same tick the later track wins, as it does when the sequence is played
+        tempoChanges.sort((first, second) -> Long.compare(first.getTick(), second.getTick()));
+        signatureChanges.sort((first, second) -> Long.compare(first.getTick(), second.getTick()));
+        indexTempos(tempoChanges);
+        indexSignatures(signatureChanges);
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public long toTick(SongPosition position) {
+        switch (position.getUnit()) {
+            case BARS:
+                return barToTick(position.getValue());
+            case MILLISECONDS:
+                return microsecondToTick(position.getValue() * 1000);
+            default:
+                return position.getValue();
+        }
+    }
+
+    /**
+     * The tracks of the song from {@code tick} on, ready for a {@link MidiFileWriter}.
+     */
+    public List<MidiEventBuffer> seek(long tick) throws InvalidMidiDataException {
+        List<MidiEventBuffer> suffix = new ArrayList<>(tracks.size());
+        for (TrackIndex track : tracks) {
+            suffix.add(track.seek(tick));
+        }
+        return suffix;
+    }
+
+    private long barToTick(long bar) {
+        int index = lastAtOrBefore(signatureBars, signatureBars.length, bar);
+        return signatureTicks[index] + (bar - signatureBars[index]) * ticksPerBar[index];
+    }
+
+    private long microsecondToTick(long microseconds) {
+        int index = lastAtOrBefore(tempoMicroseconds, tempoMicroseconds.length, microseconds);
+        return tempoTicks[index] + (microseconds - tempoMicroseconds[index]) * resolution / tempos[index];
+    }
+
+    private void indexTempos(List<MidiEvent> tempoChanges) {
+        int count = tempoChanges.size() + 1;
+        tempoTicks = Arrays.copyOf(tempoTicks, count);
+        tempoMicroseconds = Arrays.copyOf(tempoMicroseconds, count);
+        tempos = Arrays.copyOf(tempos, count);
+        for (int i = 1; i < count; i++) {
+            MidiEvent event = tempoChanges.get(i - 1);
+            byte[] data = ((MetaMessage) event.getMessage()).getData();
+            tempoTicks[i] = event.getTick();
+            tempoMicroseconds[i] = tempoMicroseconds[i - 1]
+                    + (tempoTicks[i] - tempoTicks[i - 1]) * tempos[i - 1] / resolution;
+            tempos[i] = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+        }
+    }
+
+    private void indexSignatures(List<MidiEvent> signatureChanges) {
+        int count = signatureChanges.size() + 1;
+        signatureTicks = Arrays.copyOf(signatureTicks, count);
+        signatureBars = Arrays.copyOf(signatureBars, count);
+        ticksPerBar = Arrays.copyOf(ticksPerBar, count);
+        for (int i = 1; i < count; i++) {
+            MidiEvent event = signatureChanges.get(i - 1);
+            byte[] data = ((MetaMessage) event.getMessage()).getData();
+            signatureTicks[i] = event.getTick();
+            signatureBars[i] = signatureBars[i - 1] + (signatureTicks[i] - signatureTicks[i - 1]) / ticksPerBar[i - 1];
+            ticksPerBar[i] = Math.max(1, (data[0] & 0xFF) * 4L * resolution >> (data[1] & 0xFF));
+        }
+    }
+
+    /**
+     * The index of the last value at or before {@code key}, or 0 if there is none.
+     */
+    private static int lastAtOrBefore(long[] values, int size, long key) {
+        int index = firstAtOrAfter(values, size, key + 1) - 1;
+        return Math.max(index, 0);
+    }
+
+    /**
+     * The index of the first value at or after {@code key}, or {@code size} if there is none.
+     */
+    private static int firstAtOrAfter(long[] values, int size, long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static class TrackIndex {
+        private final long[] ticks;
+        private final MidiMessage[] messages;
+        private final long endTick;
+
+        private final int[] stateEvents;
+        private final long[] stateTicks;
+
+        private final int[] noteOnEvents;
+        private final long[] noteOnTicks;
+        private final long[] noteOffTicks;
+        // the latest note off among the notes up to each one, so that a backwards walk knows when to stop
+        private final long[] latestNoteOffTicks;
+
+        TrackIndex(Track track, List<MidiEvent> tempoChanges, List<MidiEvent> signatureChanges) {
+            int size = track.size();
+            long[] eventTicks = new long[size];
+            MidiMessage[] eventMessages = new MidiMessage[size];
+            int[] states = new int[size];
+            int[] notes = new int[size];
+            long[] noteOffs = new long[size];
+            int[] soundingNotes = new int[16 * 128];
+            Arrays.fill(soundingNotes, -1);
+            int count = 0;
+            int stateCount = 0;
+            int noteCount = 0;
+            long lastTick = 0;
+
+            for (int i = 0; i < size; i++) {
+                MidiEvent event = track.get(i);
+                MidiMessage message = event.getMessage();
+                lastTick = Math.max(lastTick, event.getTick());
+                if (message instanceof MetaMessage) {
+                    int type = ((MetaMessage) message).getType();
+                    if (type == MidiEventBuffer.END_OF_TRACK) {
+                        continue;
+                    } else if (type == TEMPO_TYPE && ((MetaMessage) message).getData().length == 3) {
+                        tempoChanges.add(event);
+                    } else if (type == TIME_SIGNATURE_TYPE && ((MetaMessage) message).getData().length >= 2) {
+                        signatureChanges.add(event);
+                    }
+                }
+
+                eventTicks[count] = event.getTick();
+                eventMessages[count] = message;
+                int command = message instanceof ShortMessage ? ((ShortMessage) message).getCommand() : -1;
+                if (command == ShortMessage.NOTE_ON || command == ShortMessage.NOTE_OFF) {
+                    ShortMessage shortMessage = (ShortMessage) message;
+                    int key = shortMessage.getChannel() * 128 + shortMessage.getData1();
+                    if (soundingNotes[key] >= 0) {
+                        noteOffs[soundingNotes[key]] = event.getTick();
+                        soundingNotes[key] = -1;
+                    }
+                    if (command == ShortMessage.NOTE_ON && shortMessage.getData2() > 0) {
+                        notes[noteCount] = count;
+                        noteOffs[noteCount] = Long.MAX_VALUE;
+                        soundingNotes[key] = noteCount++;
+                    }
+                } else {
+                    states[stateCount++] = count;
+                }
+                count++;
+            }
+
+            ticks = Arrays.copyOf(eventTicks, count);
+            messages = Arrays.copyOf(eventMessages, count);
+            endTick = lastTick;
+            stateEvents = Arrays.copyOf(states, stateCount);
+            stateTicks = new long[stateCount];
+            for (int i = 0; i < stateCount; i++) {
+                stateTicks[i] = ticks[stateEvents[i]];
+            }
+            noteOnEvents = Arrays.copyOf(notes, noteCount);
+            noteOnTicks = new long[noteCount];
+            noteOffTicks = Arrays.copyOf(noteOffs, noteCount);
+            latestNoteOffTicks = new long[noteCount];
+            for (int i = 0; i < noteCount; i++) {
+                noteOnTicks[i] = ticks[noteOnEvents[i]];
+                latestNoteOffTicks[i] = Math.max(noteOffTicks[i], i > 0 ? latestNoteOffTicks[i - 1] : 0);
+            }
+        }
+
+        MidiEventBuffer seek(long tick) throws InvalidMidiDataException {
+            MidiEventBuffer buffer = new MidiEventBuffer();
+            int states = firstAtOrAfter(stateTicks, stateTicks.length, tick);
+            for (int i = 0; i < states; i++) {
+                buffer.addMessage(0, messages[stateEvents[i]]);
+            }
+
+            int firstSounding = firstAtOrAfter(noteOnTicks, noteOnTicks.length, tick);
+            while (firstSounding > 0 && latestNoteOffTicks[firstSounding - 1] > tick) {
+                firstSounding--;
+            }
+            int[] soundingNotes = new int[16 * 128];
+            for (int i = firstSounding; i < noteOnTicks.length && noteOnTicks[i] < tick; i++) {
+                if (noteOffTicks[i] > tick) {
+                    ShortMessage noteOn = (ShortMessage) messages[noteOnEvents[i]];
+                    soundingNotes[noteOn.getChannel() * 128 + noteOn.getData1()]++;
+                    buffer.addMessage(0, noteOn);
+                }
+            }
+
+            for (int i = firstAtOrAfter(ticks, ticks.length, tick); i < ticks.length; i++) {
+                int command = messages[i] instanceof ShortMessage ? ((ShortMessage) messages[i]).getCommand() : -1;
+                if (command == ShortMessage.NOTE_ON || command == ShortMessage.NOTE_OFF) {
+                    ShortMessage note = (ShortMessage) messages[i];
+                    int key = note.getChannel() * 128 + note.getData1();
+                    if (command == ShortMessage.NOTE_ON && note.getData2() > 0) {
+                        soundingNotes[key]++;
+                    } else if (soundingNotes[key] == 0) {
+                        continue;
+                    } else {
+                        soundingNotes[key]--;
+                    }
+                }
+                buffer.addMessage(ticks[i] - tick, messages[i]);
+            }
+            buffer.endTrack(Math.max(endTick - tick, 0));
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.nerdery.soundchallenge.midi;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A point in a song, counted from its start in ticks, whole bars or milliseconds. Written as a number with an optional
+ * unit: {@code 960} or {@code 960t} for ticks, {@code 8bar} or {@code 8bars} for the start of the ninth bar, and
+ * {@code 1500ms} for a time.
+ */
+public class SongPosition {
+
+    public enum Unit {
+        TICKS, BARS, MILLISECONDS
+    }
+
+    private static final Pattern FORMAT = Pattern.compile("(\\d{1,12})(t|bars?|ms)?");
+
+    private final long value;
+    private final Unit unit;
+
+    public SongPosition(long value, Unit unit) {
+        if (value < 0) {
+            throw new IllegalArgumentException("A song position can't be negative: " + value);
+        }
+        this.value = value;
+        this.unit = unit;
+    }
+
+    public static SongPosition parse(String position) {
+        Matcher matcher = FORMAT.matcher(position.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid song position: " + position);
+        }
+
+        String unit = matcher.group(2);
+        long value = Long.parseLong(matcher.group(1));
+        if (unit == null || unit.equals("t")) {
+            return new SongPosition(value, Unit.TICKS);
+        } else if (unit.equals("ms")) {
+            return new SongPosition(value, Unit.MILLISECONDS);
+        }
+        return new SongPosition(value, Unit.BARS);
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    @Override
+    public String toString() {
+        switch (unit) {
+            case BARS:
+                return value + "bars";
+            case MILLISECONDS:
+                return value + "ms";
+            default:
+                return value + "t";
+        }
+    }
+}
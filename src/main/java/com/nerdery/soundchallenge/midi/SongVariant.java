@@ -0,0 +1,149 @@
+package com.nerdery.soundchallenge.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.ShortMessage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SongVariant is a change to a finished song: moving it up or down by some semitones, playing it at another tempo, or
+ * playing every instrument with one voice. A variant is applied to the song's {@link EventTable} in one pass over its
+ * events, without generating the song again.
+ *
+ * The percussion channel is left alone, since its notes pick drums rather than pitches and its program picks a kit.
+ * Transposed notes that fall off either end of the keyboard are dropped.
+ */
+public class SongVariant {
+
+    public static final SongVariant ORIGINAL = new SongVariant(0, 0, -1);
+
+    public static final int MAX_TRANSPOSE = 48;
+    public static final int MIN_BEATS_PER_MINUTE = 20;
+    public static final int MAX_BEATS_PER_MINUTE = 960;
+
+    private static final int PERCUSSION_CHANNEL = 9;
+    private static final int TEMPO_TYPE = 0x51;
+    private static final int DEFAULT_TEMPO = 500000;
+    private static final int MICROSECONDS_PER_MINUTE = 60000000;
+
+    private final int transpose;
+    private final int beatsPerMinute;
+    private final int program;
+
+    /**
+     * @param transpose      semitones to move every note by
+     * @param beatsPerMinute the tempo the song should start at, or 0 to keep its own; later tempo changes keep their
+     *                       proportions to it
+     * @param program        the program to give every instrument, from 0 to 127, or -1 to keep their own
+     */
+    public SongVariant(int transpose, int beatsPerMinute, int program) {
+        if (Math.abs(transpose) > MAX_TRANSPOSE) {
+            throw new IllegalArgumentException("Can only transpose by up to " + MAX_TRANSPOSE + " semitones");
+        }
+        if (beatsPerMinute != 0 && (beatsPerMinute < MIN_BEATS_PER_MINUTE || beatsPerMinute > MAX_BEATS_PER_MINUTE)) {
+            throw new IllegalArgumentException(String.format("The tempo must be between %d and %d beats per minute",
+                    MIN_BEATS_PER_MINUTE, MAX_BEATS_PER_MINUTE));
+        }
+        if (program < -1 || program > 127) {
+            throw new IllegalArgumentException("Invalid program: " + program);
+        }
+        this.transpose = transpose;
+        this.beatsPerMinute = beatsPerMinute;
+        this.program = program;
+    }
+
+    public boolean isOriginal() {
+        return transpose == 0 && beatsPerMinute == 0 && program < 0;
+    }
+
+    /**
+     * The variant's parameters, in the same form for every equal variant.
+     */
+    @Override
+    public String toString() {
+        return String.format("transpose=%d&tempo=%d&program=%d", transpose, beatsPerMinute, program);
+    }
+
+    public EventTable apply(EventTable song) throws InvalidMidiDataException {
+        double tempoScale = 1;
+        boolean hasTempo = false;
+        if (beatsPerMinute > 0) {
+            long firstTempo = findFirstTempo(song);
+            hasTempo = firstTempo >= 0;
+            tempoScale = MICROSECONDS_PER_MINUTE / (double) beatsPerMinute / (hasTempo ? firstTempo : DEFAULT_TEMPO);
+        }
+
+        List<MidiEventBuffer> tracks = new ArrayList<>(song.getTracks().size());
+        for (MidiEventBuffer track : song.getTracks()) {
+            MidiEventBuffer copy = new MidiEventBuffer();
+            if (beatsPerMinute > 0 && !hasTempo && tracks.isEmpty()) {
+                copy.addMetaMessage(0, TEMPO_TYPE, tempoBytes(MICROSECONDS_PER_MINUTE / beatsPerMinute));
+            }
+            for (int i = 0; i < track.size(); i++) {
+                copyEvent(track, i, copy, tempoScale);
+            }
+            copy.endTrack(track.getEndTick());
+            tracks.add(copy);
+        }
+        return new EventTable(song.getResolution(), tracks);
+    }
+
+    private void copyEvent(MidiEventBuffer track, int index, MidiEventBuffer copy, double tempoScale)
+            throws InvalidMidiDataException {
+        long tick = track.getTick(index);
+        int status = track.getStatus(index);
+        if (status == MidiEventBuffer.META) {
+            int type = track.getData1(index);
+            byte[] data = track.getData(index);
+            if (type == TEMPO_TYPE && data.length == 3 && tempoScale != 1) {
+                data = tempoBytes(Math.round(readTempo(data) * tempoScale));
+            }
+            copy.addMetaMessage(tick, type, data);
+        } else if (status == MidiEventBuffer.SYSEX) {
+            copy.addSysexMessage(tick, track.getData(index));
+        } else {
+            int command = status & 0xF0;
+            int data1 = track.getData1(index);
+            if ((status & 0x0F) != PERCUSSION_CHANNEL) {
+                if (command == ShortMessage.NOTE_ON || command == ShortMessage.NOTE_OFF) {
+                    data1 += transpose;
+                    if (data1 < 0 || data1 > 127) {
+                        return;
+                    }
+                } else if (command == ShortMessage.PROGRAM_CHANGE && program >= 0) {
+                    data1 = program;
+                }
+            }
+            copy.addShortMessage(tick, status, data1, track.getData2(index));
+        }
+    }
+
+    /**
+     * The tempo in effect at the start of the song, or -1 if it never sets one. Each track is in playback order, so
+     * only the first tempo of each needs looking at.
+     */
+    private static long findFirstTempo(EventTable song) {
+        long firstTick = Long.MAX_VALUE;
+        long firstTempo = -1;
+        for (MidiEventBuffer track : song.getTracks()) {
+            for (int i = 0; i < track.size() && track.getTick(i) < firstTick; i++) {
+                if (track.getStatus(i) == MidiEventBuffer.META && track.getData1(i) == TEMPO_TYPE
+                        && track.getMessageLength(i) == 4) {
+                    firstTick = track.getTick(i);
+                    firstTempo = readTempo(track.getData(i));
+                    break;
+                }
+            }
+        }
+        return firstTempo;
+    }
+
+    private static long readTempo(byte[] data) {
+        return ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+    }
+
+    private static byte[] tempoBytes(long tempo) {
+        int clamped = (int) Math.max(1, Math.min(tempo, 0xFFFFFF));
+        return new byte[]{(byte) (clamped >> 16), (byte) (clamped >> 8), (byte) clamped};
+    }
+}
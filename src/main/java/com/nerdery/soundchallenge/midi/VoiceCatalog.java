@@ -0,0 +1,15 @@
+package com.nerdery.soundchallenge.midi;
+
+import java.util.OptionalInt;
+
+/**
+ * Looks up General MIDI voices by name.
+ */
+public interface VoiceCatalog {
+
+    /**
+     * The General MIDI patch number, from 1 to 128, of the named voice. Names are matched ignoring case, spaces and
+     * punctuation, so {@code AcousticGrandPiano} and {@code acoustic-grand-piano} are the same voice.
+     */
+    OptionalInt findPatch(String name);
+}
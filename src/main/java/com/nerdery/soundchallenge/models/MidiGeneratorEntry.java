@@ -3,10 +3,12 @@ package com.nerdery.soundchallenge.models;
 public class MidiGeneratorEntry {
     private String name;
     private String link;
+    private String audioLink;
 
-    public MidiGeneratorEntry(String name, String link) {
+    public MidiGeneratorEntry(String name, String link, String audioLink) {
         this.name = name;
         this.link = link;
+        this.audioLink = audioLink;
     }
 
     public String getName() {
@@ -24,4 +26,12 @@ public class MidiGeneratorEntry {
     public void setLink(String link) {
         this.link = link;
     }
+
+    public String getAudioLink() {
+        return audioLink;
+    }
+
+    public void setAudioLink(String audioLink) {
+        this.audioLink = audioLink;
+    }
 }
@@ -0,0 +1,143 @@
+package com.nerdery.soundchallenge.models;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+
+/**
+ * The finished bytes of a song, either a Standard MIDI File or rendered audio, along with a strong ETag derived from
+ * those bytes. The bytes are normally on the heap; {@link #toDirect()} moves them into native memory, which suits
+ * large audio renders that are kept around in a cache. Songs read back from a file remember where they came from, so
+ * that they can be sent straight from the file.
+ */
+public class RenderedSong {
+    private final byte[] bytes;
+    private final ByteBuffer directBytes;
+    private final String eTag;
+    private final Path file;
+    private final long fileOffset;
+
+    public RenderedSong(byte[] bytes) {
+        this.bytes = bytes;
+        this.directBytes = null;
+        this.eTag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+        this.file = null;
+        this.fileOffset = 0;
+    }
+
+    private RenderedSong(ByteBuffer directBytes, String eTag, Path file, long fileOffset) {
+        this.bytes = null;
+        this.directBytes = directBytes;
+        this.eTag = eTag;
+        this.file = file;
+        this.fileOffset = fileOffset;
+    }
+
+    /**
+     * A song whose bytes have been mapped from {@code file}, starting at {@code fileOffset}, and whose ETag was worked
+     * out when the bytes were first rendered.
+     */
+    public static RenderedSong mapped(ByteBuffer mappedBytes, String eTag, Path file, long fileOffset) {
+        return new RenderedSong(mappedBytes.asReadOnlyBuffer(), eTag, file, fileOffset);
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public int getContentLength() {
+        return bytes != null ? bytes.length : directBytes.capacity();
+    }
+
+    /**
+     * The file the bytes were mapped from, or null if they weren't.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Where in {@link #getFile()} the bytes start.
+     */
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    public boolean isDirect() {
+        return directBytes != null;
+    }
+
+    /**
+     * A copy of this song held in native memory rather than on the heap. The memory is freed once the copy is
+     * garbage collected.
+     */
+    public RenderedSong toDirect() {
+        if (isDirect()) {
+            return this;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return new RenderedSong(buffer.asReadOnlyBuffer(), eTag, null, 0);
+    }
+
+    /**
+     * The song's bytes, as a read-only buffer of its own.
+     */
+    public ByteBuffer asByteBuffer() {
+        return bytes != null ? ByteBuffer.wrap(bytes).asReadOnlyBuffer() : directBytes.duplicate();
+    }
+
+    public InputStream openStream() {
+        if (bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
+        ByteBuffer buffer = directBytes.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] destination, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.get(destination, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(outputStream, 0, getContentLength());
+    }
+
+    /**
+     * Writes {@code count} bytes of the song, starting at {@code offset}.
+     */
+    public void writeTo(OutputStream outputStream, int offset, int count) throws IOException {
+        if (bytes != null) {
+            outputStream.write(bytes, offset, count);
+        } else {
+            ByteBuffer buffer = directBytes.duplicate();
+            buffer.position(offset).limit(offset + count);
+            Channels.newChannel(outputStream).write(buffer);
+        }
+    }
+}
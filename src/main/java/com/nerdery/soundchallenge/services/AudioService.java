@@ -0,0 +1,333 @@
+package com.nerdery.soundchallenge.services;
+
+import com.nerdery.soundchallenge.audio.AudioRenderer;
+import com.nerdery.soundchallenge.audio.SynthesizerPool;
+import com.nerdery.soundchallenge.cache.RenderCache;
+import com.nerdery.soundchallenge.cache.RenderStore;
+import com.nerdery.soundchallenge.metrics.MetricsRegistry;
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Soundbank;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * AudioService renders songs to WAV audio on a dedicated, bounded pool of worker threads. Renders of deterministic
+ * songs are offered to the {@link RenderCache} and written to the {@link RenderStore}, and a request for a song that
+ * is already being rendered waits for that render.
+ *
+ * When every worker is busy and the queue is full, new renders are refused with a
+ * {@link RejectedExecutionException} rather than piling up.
+ *
+ * Songs can also be streamed: the audio is synthesized on the caller's thread while it is being sent, a block at a
+ * time. Streams are limited separately, since each one holds a synthesizer for as long as its listener takes to
+ * download it.
+ *
+ * Both kinds of render borrow their synthesizer from a pool that is opened by the first render that needs it. By
+ * default it holds one synthesizer per render thread and one more, so that a stream can usually start without
+ * waiting. They play the soundbank file named by {@code nerdsound.audio.soundbank}, or the JDK's built-in soundbank if
+ * it is not set.
+ *
+ * If the pool can't be opened, for instance because the JVM was started without the option
+ * {@code --add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED} on Java 9 or later, audio is disabled: the rest
+ * of the application keeps running, and every render that isn't already cached fails with a
+ * {@link MidiUnavailableException}.
+ */
+@Service
+public class AudioService {
+
+    private MidiService midiService;
+    private volatile SynthesizerPool synthesizers;
+    private volatile AudioRenderer renderer;
+    private String unavailableReason;
+    private Soundbank soundbank;
+    private int synthesizerCount;
+    private long borrowTimeoutMillis;
+    private RenderCache renderCache;
+    private RenderStore renderStore;
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private String rendererKey;
+    private Map<String, CompletableFuture<RenderedSong>> inFlightRenders = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor renderPool;
+    private ThreadPoolExecutor segmentPool;
+    private Semaphore streamPermits;
+    private int maxStreams;
+    private long renderTimeoutMillis;
+    private int blockFrames = AudioRenderer.DEFAULT_BLOCK_FRAMES;
+    private int segments = 1;
+
+    @Inject
+    public AudioService(MidiService theMidiService, RenderCache theRenderCache, RenderStore theRenderStore,
+                        @Value("${nerdsound.audio.threads:0}") int threads,
+                        @Value("${nerdsound.audio.queueSize:16}") int queueSize,
+                        @Value("${nerdsound.audio.maxStreams:16}") int maxStreams,
+                        @Value("${nerdsound.audio.synthesizers:0}") int synthesizerCount,
+                        @Value("${nerdsound.audio.borrowTimeoutMillis:5000}") long borrowTimeoutMillis,
+                        @Value("${nerdsound.audio.soundbank:}") String soundbankPath)
+            throws InvalidMidiDataException, IOException {
+        midiService = theMidiService;
+        renderCache = theRenderCache;
+        renderStore = theRenderStore;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        renderPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new CustomizableThreadFactory("audio-render-"));
+        this.maxStreams = maxStreams;
+        streamPermits = new Semaphore(maxStreams);
+        soundbank = soundbankPath.isEmpty() ? null : SynthesizerPool.loadSoundbank(new File(soundbankPath));
+        this.synthesizerCount = synthesizerCount > 0 ? synthesizerCount : poolSize + 1;
+        segmentPool = new ThreadPoolExecutor(this.synthesizerCount, this.synthesizerCount, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.synthesizerCount), new CustomizableThreadFactory("audio-segment-"));
+        segmentPool.allowCoreThreadTimeOut(true);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        rendererKey = "java-" + System.getProperty("java.version")
+                + (soundbankPath.isEmpty() ? "" : "+" + soundbankPath + "@" + new File(soundbankPath).lastModified());
+    }
+
+    public RenderedSong renderAudio(String filterName)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        Assert.notNull(filterName);
+        Assert.isTrue(midiService.isValidGenerator(filterName));
+        if (!midiService.isDeterministic(filterName)) {
+            CompletableFuture<RenderedSong> render = new CompletableFuture<>();
+            submit(filterName, render, false);
+            return awaitRender(filterName, render);
+        }
+
+        RenderedSong song = renderCache.get(cacheKey(filterName));
+        if (song == null) {
+            song = renderStore.get(storeKey(filterName));
+            if (song != null) {
+                renderCache.put(cacheKey(filterName), song);
+            }
+        }
+        if (song != null) {
+            return song;
+        }
+        CompletableFuture<RenderedSong> render = inFlightRenders.get(filterName);
+        if (render == null) {
+            CompletableFuture<RenderedSong> submitted = new CompletableFuture<>();
+            render = inFlightRenders.putIfAbsent(filterName, submitted);
+            if (render == null) {
+                render = submitted;
+                submit(filterName, submitted, true);
+            }
+        }
+        return awaitRender(filterName, render);
+    }
+
+    /**
+     * Starts rendering a song as a stream, to be written with {@link #writeWave}. The stream must be closed, which
+     * frees its synthesizer and its place among the open streams.
+     */
+    public AudioInputStream openAudioStream(String filterName)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        Assert.notNull(filterName);
+        Assert.isTrue(midiService.isValidGenerator(filterName));
+        if (!streamPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many open audio streams");
+        }
+
+        try {
+            Sequence sequence = MidiSystem.getSequence(midiService.renderSong(filterName).openStream());
+            AudioInputStream audioStream = getRenderer().openStream(sequence);
+            return new AudioInputStream(audioStream, audioStream.getFormat(), audioStream.getFrameLength()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        streamPermits.release();
+                    }
+                }
+            };
+        } catch (Throwable e) {
+            streamPermits.release();
+            throw e;
+        }
+    }
+
+    public long writeWave(AudioInputStream audioStream, OutputStream outputStream) throws IOException {
+        return AudioRenderer.writeWave(audioStream, outputStream, blockFrames);
+    }
+
+    @Value("${nerdsound.audio.timeoutMillis:30000}")
+    public void setRenderTimeoutMillis(long theRenderTimeoutMillis) {
+        renderTimeoutMillis = theRenderTimeoutMillis;
+    }
+
+    @Value("${nerdsound.audio.blockFrames:1024}")
+    public void setBlockFrames(int theBlockFrames) {
+        blockFrames = theBlockFrames;
+    }
+
+    /**
+     * Splits whole-song renders into up to this many time segments, rendered at once on separate synthesizers. Streams
+     * are always rendered in one piece. Segments after the first run on a pool of their own, with a thread for each
+     * synthesizer, since a segment only runs once it has borrowed one and then spends its time blocked reading it.
+     */
+    @Value("${nerdsound.audio.segments:1}")
+    public void setSegments(int theSegments) {
+        segments = theSegments;
+    }
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry theMetricsRegistry) {
+        metricsRegistry = theMetricsRegistry;
+    }
+
+    public int getActiveRenderCount() {
+        return renderPool.getActiveCount();
+    }
+
+    public int getQueuedRenderCount() {
+        return renderPool.getQueue().size();
+    }
+
+    public int getOpenStreamCount() {
+        return maxStreams - streamPermits.availablePermits();
+    }
+
+    /**
+     * The synthesizer pool, or null if no render has needed it yet or it could not be opened.
+     */
+    public SynthesizerPool getSynthesizerPool() {
+        return synthesizers;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        renderPool.shutdownNow();
+        segmentPool.shutdownNow();
+        if (synthesizers != null) {
+            synthesizers.close();
+        }
+        unavailableReason = "the application is shutting down";
+    }
+
+    private AudioRenderer getRenderer() throws MidiUnavailableException {
+        AudioRenderer current = renderer;
+        return current != null ? current : openRenderer();
+    }
+
+    private synchronized AudioRenderer openRenderer() throws MidiUnavailableException {
+        if (renderer == null && unavailableReason == null) {
+            try {
+                synthesizers = new SynthesizerPool(AudioRenderer.DEFAULT_FORMAT, soundbank, synthesizerCount,
+                        borrowTimeoutMillis);
+                renderer = new AudioRenderer(synthesizers);
+            } catch (MidiUnavailableException | RuntimeException | LinkageError e) {
+                unavailableReason = String.valueOf(e.getMessage());
+            }
+        }
+        if (renderer == null) {
+            throw new MidiUnavailableException("Audio rendering is disabled: " + unavailableReason);
+        }
+        return renderer;
+    }
+
+    private void submit(String filterName, CompletableFuture<RenderedSong> render, boolean cached) {
+        try {
+            renderPool.execute(() -> {
+                try {
+                    RenderedSong song = render(filterName);
+                    if (cached) {
+                        song = renderStore.put(storeKey(filterName), song);
+                        renderCache.put(cacheKey(filterName), song);
+                        inFlightRenders.remove(filterName, render);
+                    }
+                    render.complete(song);
+                } catch (Throwable e) {
+                    fail(filterName, render, cached, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(filterName, render, cached, e);
+        }
+    }
+
+    private void fail(String filterName, CompletableFuture<RenderedSong> render, boolean cached, Throwable e) {
+        if (cached) {
+            inFlightRenders.remove(filterName, render);
+        }
+        render.completeExceptionally(e);
+    }
+
+    private static String cacheKey(String filterName) {
+        return "audio/" + filterName;
+    }
+
+    /**
+     * Audio depends on the song, on the code that renders it, which the MIDI fingerprint covers, on the JDK, whose
+     * synthesizer plays it, on the soundbank and on how many segments it was rendered in, since segments are
+     * crossfaded together.
+     */
+    private String storeKey(String filterName) {
+        return String.format("%s?segments=%d@%s+%s", cacheKey(filterName), segments, midiService.getFingerprint(),
+                rendererKey);
+    }
+
+    private RenderedSong render(String filterName)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        Sequence sequence = MidiSystem.getSequence(midiService.renderSong(filterName).openStream());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        if (segments > 1) {
+            getRenderer().renderWave(sequence, outputStream, segments, segmentPool);
+        } else {
+            getRenderer().renderWave(sequence, outputStream);
+        }
+        metricsRegistry.getGeneratorMetrics(filterName).audioRendered(System.nanoTime() - start);
+        return new RenderedSong(outputStream.toByteArray());
+    }
+
+    private RenderedSong awaitRender(String filterName, CompletableFuture<RenderedSong> render)
+            throws IOException, InvalidMidiDataException, MidiUnavailableException {
+        try {
+            return render.get(renderTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for audio of " + filterName);
+        } catch (TimeoutException e) {
+            throw new IOException(String.format("Timed out after %d ms waiting for audio of %s",
+                    renderTimeoutMillis, filterName), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InvalidMidiDataException) {
+                throw (InvalidMidiDataException) cause;
+            } else if (cause instanceof MidiUnavailableException) {
+                throw (MidiUnavailableException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
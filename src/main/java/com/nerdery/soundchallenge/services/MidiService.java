@@ -1,18 +1,42 @@
 package com.nerdery.soundchallenge.services;
 
+import com.nerdery.soundchallenge.cache.RenderCache;
+import com.nerdery.soundchallenge.cache.RenderStore;
+import com.nerdery.soundchallenge.metrics.GeneratorMetrics;
+import com.nerdery.soundchallenge.metrics.MetricsRegistry;
+import com.nerdery.soundchallenge.metrics.ServerTiming;
+import com.nerdery.soundchallenge.midi.EventTable;
+import com.nerdery.soundchallenge.midi.MidiFileWriter;
+import com.nerdery.soundchallenge.midi.SeekIndex;
+import com.nerdery.soundchallenge.midi.SongPosition;
+import com.nerdery.soundchallenge.midi.SongVariant;
+import com.nerdery.soundchallenge.midi.VoiceCatalog;
+import com.nerdery.soundchallenge.models.RenderedSong;
 import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator;
+import midiReference.ScaleReference;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
 import javax.inject.Inject;
 import javax.sound.midi.InvalidMidiDataException;
-import java.awt.image.BufferedImage;
+import javax.sound.midi.MidiSystem;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -22,25 +46,347 @@ import java.util.stream.Collectors;
 @Service
 public class MidiService {
 
+    /**
+     * Where the classes and resources that decide what a song sounds like are on the class path: the application and
+     * the scores its generators read.
+     */
+    static final String[] RENDERING_CODE = {"com/nerdery/soundchallenge/", "scores/"};
+
+    /**
+     * A class from each library the generators compose with.
+     */
+    static final Class<?>[] RENDERING_LIBRARIES = {ScaleReference.class, scala.Option.class};
+
+    /**
+     * How many seek indexes are kept, of songs and their variants, the least recently used being dropped first.
+     */
+    private static final int MAX_SEEK_INDEXES = 32;
+
     private Map<String, MidiGenerator> generators;
+    private RenderCache renderCache;
+    private RenderStore renderStore;
+    private String fingerprint;
+    private Map<String, CompletableFuture<RenderedSong>> inFlightRenders = new ConcurrentHashMap<>();
+    private Map<String, SeekIndex> seekIndexes = Collections.synchronizedMap(
+            new LinkedHashMap<String, SeekIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SeekIndex> eldest) {
+                    return size() > MAX_SEEK_INDEXES;
+                }
+            });
+    private Map<String, EventTable> eventTables = new ConcurrentHashMap<>();
+    private VoiceCatalog voiceCatalog;
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private LongAdder renders = new LongAdder();
+    private LongAdder coalescedRenders = new LongAdder();
+    private long renderTimeoutMillis;
 
     @Inject
-    public MidiService(List<MidiGenerator> filters) {
+    public MidiService(List<MidiGenerator> filters, RenderCache theRenderCache, RenderStore theRenderStore)
+            throws IOException {
+        this.renderCache = theRenderCache;
+        this.renderStore = theRenderStore;
         this.generators = filters.stream().collect(Collectors.toMap(MidiGenerator::getName, Function.identity()));
+        this.fingerprint = RenderStore.fingerprint(MidiService.class.getClassLoader(), RENDERING_CODE,
+                RENDERING_LIBRARIES);
     }
 
     public void generateSong(OutputStream outputStream, String filterName) throws IOException, InvalidMidiDataException {
         Assert.notNull(outputStream);
+        renderSong(filterName).writeTo(outputStream);
+    }
+
+    /**
+     * Returns the rendered bytes for a song. Renders of deterministic generators are offered to the
+     * {@link RenderCache}, and later requests are served from it for as long as it keeps them. They are also written
+     * to the {@link RenderStore}, so that after a restart they are read back instead of being generated again.
+     *
+     * Concurrent requests for the same song share a single render: the first caller renders, and the rest wait up
+     * to the render timeout for its result, or its exception.
+     */
+    public RenderedSong renderSong(String filterName) throws IOException, InvalidMidiDataException {
+        return renderSong(filterName, new ServerTiming());
+    }
+
+    /**
+     * Returns the rendered bytes for a song, as {@link #renderSong(String)} does, recording in {@code timing} where
+     * they came from and how long it took to get them.
+     */
+    public RenderedSong renderSong(String filterName, ServerTiming timing)
+            throws IOException, InvalidMidiDataException {
         Assert.notNull(filterName);
         Assert.isTrue(isValidGenerator(filterName));
-        generators.get(filterName).generateSong(outputStream);
+        MidiGenerator generator = generators.get(filterName);
+        if (generator.isDeterministic()) {
+            RenderedSong song = renderCache.get(cacheKey(filterName));
+            if (song != null) {
+                timing.add("cache", "hit");
+                return song;
+            }
+        }
+
+        CompletableFuture<RenderedSong> render = new CompletableFuture<>();
+        CompletableFuture<RenderedSong> inFlight = inFlightRenders.putIfAbsent(filterName, render);
+        if (inFlight != null) {
+            coalescedRenders.increment();
+            long start = System.nanoTime();
+            RenderedSong song = awaitRender(filterName, inFlight);
+            timing.add("wait", System.nanoTime() - start);
+            return song;
+        }
+
+        try {
+            RenderedSong song = generator.isDeterministic() ? renderCache.peek(cacheKey(filterName)) : null;
+            if (song == null) {
+                song = render(generator, timing);
+                if (generator.isDeterministic()) {
+                    renderCache.put(cacheKey(filterName), song);
+                }
+            }
+            render.complete(song);
+            return song;
+        } catch (Throwable e) {
+            render.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRenders.remove(filterName, render);
+        }
+    }
+
+    /**
+     * Returns a song from the given position on, as a file of its own that starts with the tempo, programs and
+     * sounding notes that were in effect there. Deterministic songs keep a {@link SeekIndex} next to their render,
+     * so that a seek only costs a binary search and the writing of what is left.
+     */
+    public RenderedSong renderSong(String filterName, SongPosition from) throws IOException, InvalidMidiDataException {
+        return renderSong(filterName, from, new ServerTiming());
+    }
+
+    public RenderedSong renderSong(String filterName, SongPosition from, ServerTiming timing)
+            throws IOException, InvalidMidiDataException {
+        Assert.notNull(from);
+        RenderedSong song = renderSong(filterName, timing);
+        return seek(cacheKey(filterName), song, isDeterministic(filterName), from, timing);
+    }
+
+    /**
+     * Returns a variant of a song, optionally from the given position on. Variants are derived from the song's
+     * {@link EventTable}, which deterministic songs keep next to their render, so a new variant costs one pass over
+     * the events and the writing of the file, without running the generator. Whole variants of deterministic songs
+     * are offered to the {@link RenderCache} and written to the {@link RenderStore}, and their seek indexes are kept
+     * like those of the songs themselves.
+     */
+    public RenderedSong renderSong(String filterName, SongVariant variant, SongPosition from)
+            throws IOException, InvalidMidiDataException {
+        return renderSong(filterName, variant, from, new ServerTiming());
+    }
+
+    public RenderedSong renderSong(String filterName, SongVariant variant, SongPosition from, ServerTiming timing)
+            throws IOException, InvalidMidiDataException {
+        Assert.notNull(variant);
+        if (variant.isOriginal()) {
+            return from == null ? renderSong(filterName, timing) : renderSong(filterName, from, timing);
+        }
+
+        String cacheKey = cacheKey(filterName) + "?" + variant;
+        boolean deterministic = isDeterministic(filterName);
+        RenderedSong song = deterministic ? renderCache.get(cacheKey) : null;
+        if (song == null) {
+            song = deterministic ? renderStore.get(storeKey(cacheKey)) : null;
+            if (song == null) {
+                EventTable table = getEventTable(filterName, timing);
+                long start = System.nanoTime();
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                variant.apply(table).write(outputStream);
+                song = new RenderedSong(outputStream.toByteArray());
+                timing.add("variant", System.nanoTime() - start);
+                if (deterministic) {
+                    song = renderStore.put(storeKey(cacheKey), song);
+                }
+            } else {
+                timing.add("store", "hit");
+            }
+            if (deterministic) {
+                renderCache.put(cacheKey, song);
+            }
+        } else {
+            timing.add("cache", "hit");
+        }
+        return from == null ? song : seek(cacheKey, song, deterministic, from, timing);
+    }
+
+    /**
+     * Builds a variant from request parameters, any of which may be missing.
+     *
+     * @param voice a General MIDI voice name, or a patch number from 1 to 128
+     * @throws IllegalArgumentException if a parameter is out of range or names no voice
+     */
+    public SongVariant createVariant(Integer transpose, Integer beatsPerMinute, String voice) {
+        int program = -1;
+        if (voice != null) {
+            OptionalInt patch = voice.matches("\\d{1,3}") ? OptionalInt.of(Integer.parseInt(voice))
+                    : voiceCatalog.findPatch(voice);
+            if (!patch.isPresent() || patch.getAsInt() < 1 || patch.getAsInt() > 128) {
+                throw new IllegalArgumentException("Unknown voice: " + voice);
+            }
+            program = patch.getAsInt() - 1;
+        }
+        return new SongVariant(transpose == null ? 0 : transpose, beatsPerMinute == null ? 0 : beatsPerMinute,
+                program);
     }
 
     public boolean isValidGenerator(String filterName) {
         return generators.containsKey(filterName);
     }
 
+    /**
+     * Whether every render of the song comes out the same, so that anything derived from it can be cached too.
+     */
+    public boolean isDeterministic(String filterName) {
+        Assert.isTrue(isValidGenerator(filterName));
+        return generators.get(filterName).isDeterministic();
+    }
+
+    /**
+     * A fingerprint of the code that renders songs, for keys of the {@link RenderStore}. It is the same for every
+     * generator, and changes whenever the application, its scores or the libraries its generators use are rebuilt
+     * with changes.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
     public Collection<MidiGenerator> getGenerators() {
         return generators.values();
     }
+
+    /**
+     * The number of times a generator has actually been run.
+     */
+    public long getRenderCount() {
+        return renders.sum();
+    }
+
+    /**
+     * The number of requests that were answered by waiting on another request's render.
+     */
+    public long getCoalescedRenderCount() {
+        return coalescedRenders.sum();
+    }
+
+    /**
+     * The number of songs being generated right now, each of which may have other requests waiting on it.
+     */
+    public int getInFlightRenderCount() {
+        return inFlightRenders.size();
+    }
+
+    @Inject
+    public void setVoiceCatalog(VoiceCatalog theVoiceCatalog) {
+        voiceCatalog = theVoiceCatalog;
+    }
+
+    @Inject
+    public void setMetricsRegistry(MetricsRegistry theMetricsRegistry) {
+        metricsRegistry = theMetricsRegistry;
+    }
+
+    @Value("${nerdsound.render.timeoutMillis:10000}")
+    public void setRenderTimeoutMillis(long theRenderTimeoutMillis) {
+        renderTimeoutMillis = theRenderTimeoutMillis;
+    }
+
+    private static String cacheKey(String filterName) {
+        return "midi/" + filterName;
+    }
+
+    private String storeKey(String cacheKey) {
+        return cacheKey + "@" + fingerprint;
+    }
+
+    /**
+     * The rest of a song from a position on. Deterministic songs keep their seek index under their cache key, so that
+     * seeking in them again skips parsing and indexing the whole file and only costs the seek.
+     */
+    private RenderedSong seek(String cacheKey, RenderedSong song, boolean deterministic, SongPosition from,
+                              ServerTiming timing) throws IOException, InvalidMidiDataException {
+        long start = System.nanoTime();
+        SeekIndex seekIndex = deterministic ? seekIndexes.get(cacheKey) : null;
+        if (seekIndex == null) {
+            seekIndex = new SeekIndex(MidiSystem.getSequence(song.openStream()));
+            if (deterministic) {
+                seekIndexes.put(cacheKey, seekIndex);
+            }
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new MidiFileWriter().write(outputStream, seekIndex.getResolution(), seekIndex.seek(seekIndex.toTick(from)));
+        timing.add("seek", System.nanoTime() - start);
+        return new RenderedSong(outputStream.toByteArray());
+    }
+
+    private EventTable getEventTable(String filterName, ServerTiming timing)
+            throws IOException, InvalidMidiDataException {
+        boolean deterministic = isDeterministic(filterName);
+        EventTable table = deterministic ? eventTables.get(filterName) : null;
+        if (table == null) {
+            table = EventTable.read(renderSong(filterName, timing).openStream());
+            if (deterministic) {
+                eventTables.putIfAbsent(filterName, table);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Runs a generator, unless the song it makes is deterministic and already in the {@link RenderStore}.
+     */
+    private RenderedSong render(MidiGenerator generator, ServerTiming timing)
+            throws IOException, InvalidMidiDataException {
+        String storeKey = generator.isDeterministic() ? storeKey(cacheKey(generator.getName())) : null;
+        RenderedSong song = storeKey != null ? renderStore.get(storeKey) : null;
+        if (song == null) {
+            renders.increment();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            GeneratorMetrics metrics = metricsRegistry.getGeneratorMetrics(generator.getName());
+            metrics.started();
+            try {
+                generator.generateSong(outputStream, metrics.and(timing));
+            } finally {
+                metrics.finished();
+            }
+            song = new RenderedSong(outputStream.toByteArray());
+            if (storeKey != null) {
+                song = renderStore.put(storeKey, song);
+            }
+        } else {
+            timing.add("store", "hit");
+        }
+        return song;
+    }
+
+    private RenderedSong awaitRender(String filterName, CompletableFuture<RenderedSong> inFlight)
+            throws IOException, InvalidMidiDataException {
+        try {
+            return inFlight.get(renderTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + filterName);
+        } catch (TimeoutException e) {
+            throw new IOException(String.format("Timed out after %d ms waiting for %s", renderTimeoutMillis,
+                    filterName), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InvalidMidiDataException) {
+                throw (InvalidMidiDataException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 }
@@ -1,15 +1,18 @@
 package com.nerdery.soundchallenge.services.midigenerators;
 
-import javax.sound.midi.*;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.ShortMessage;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * AbstractMidiGenerator provides utility methods for generating a MIDI file that can be extended by subclasses.
  * This class is based on code found here: http://www.automatic-pilot.com/midifile.java
  *
+ * Generators hold no per-song state of their own; everything written during a call to
+ * {@link #generateSong(OutputStream)} lives in that call's {@link GenerationContext}. Building the tracks and encoding
+ * them are recorded as separate phases by the {@link GenerationRecorder}.
+ *
  * @author Josh Klun (jklun@nerdery.com)
  */
 public abstract class AbstractMidiGenerator implements MidiGenerator {
@@ -19,47 +22,51 @@ public abstract class AbstractMidiGenerator implements MidiGenerator {
     protected static final int PIANO_VOICE = 0x0;
     protected static final int QUARTER_TICKS = 60;
 
-    private Map<String, Long> currentTicks = new HashMap<>();
-    private Map<String, Integer> channels = new HashMap<>();
+    private static final int RESOLUTION = 24;
 
     @Override
     public void generateSong(OutputStream outputStream) throws IOException, InvalidMidiDataException {
-        Sequence sequence = buildSequence();
-        addNotes(sequence);
-        saveSequence(outputStream, sequence);
+        generateSong(outputStream, GenerationObserver.NONE);
+    }
+
+    @Override
+    public void generateSong(OutputStream outputStream, GenerationObserver observer)
+            throws IOException, InvalidMidiDataException {
+        GenerationRecorder.Phase generating = GenerationRecorder.get().begin(getName(), "generate");
+        GenerationContext context = buildContext();
+        context.setObserver(observer);
+        addNotes(context);
+        context.awaitTracks();
+        generating.end();
+
+        GenerationRecorder.Phase encoding = GenerationRecorder.get().begin(getName(), "encode");
+        saveSequence(outputStream, context);
+        encoding.end();
     }
 
-    protected long getTrackTicks(String trackId) {
-        Long ticks = currentTicks.get(trackId);
-        if (ticks == null) {
-            final long initialTicks = 1L;
-            currentTicks.put(trackId, initialTicks);
-            ticks = initialTicks;
-        }
-        return ticks;
+    protected long getTrackTicks(TrackCursor track) {
+        return track.getTicks();
     }
 
-    protected long addTrackTicks(String trackId, long addedTicks) {
-        long newTicks = getTrackTicks(trackId) + addedTicks;
-        currentTicks.replace(trackId, newTicks);
-        return newTicks;
+    protected long addTrackTicks(TrackCursor track, long addedTicks) {
+        return track.addTicks(addedTicks);
     }
 
-    protected void resetTrackTicks(String trackId) {
-        currentTicks.remove(trackId);
+    protected void resetTrackTicks(TrackCursor track) {
+        track.resetTicks();
     }
 
-    protected int getChannel(String trackId) {
-        return channels.get(trackId);
+    protected int getChannel(TrackCursor track) {
+        return track.getChannel();
     }
 
-    protected Track buildTrack(Sequence sequence, String trackName) throws InvalidMidiDataException {
-        return buildTrack(sequence, trackName, 0);
+    protected TrackCursor buildTrack(GenerationContext context, String trackName) throws InvalidMidiDataException {
+        return buildTrack(context, trackName, 0);
     }
 
-    protected Track buildTrack(Sequence sequence, String trackName, int channel) throws InvalidMidiDataException {
-        Track track = sequence.createTrack();
-        channels.put(track.toString(), channel);
+    protected TrackCursor buildTrack(GenerationContext context, String trackName, int channel)
+            throws InvalidMidiDataException {
+        TrackCursor track = context.createTrack(channel);
         enableGeneralMidi(track);
         configureTempo(track);
         nameTrack(track, trackName);
@@ -67,100 +74,76 @@ public abstract class AbstractMidiGenerator implements MidiGenerator {
         return track;
     }
 
-    protected abstract void addNotes(Sequence sequence) throws InvalidMidiDataException;
+    protected abstract void addNotes(GenerationContext context) throws InvalidMidiDataException;
 
-    protected void addNote(Track track, int note, long duration) throws InvalidMidiDataException {
+    protected void addNote(TrackCursor track, int note, long duration) throws InvalidMidiDataException {
         addNote(track, note, 0l, duration);
     }
 
-    protected void addNote(Track track, int channel, int note, long duration) throws InvalidMidiDataException {
+    protected void addNote(TrackCursor track, int channel, int note, long duration) throws InvalidMidiDataException {
         addNote(track, channel, note, 0l, duration);
     }
 
-    protected void addNote(Track track, int note, long pause, long duration) throws InvalidMidiDataException {
-        addNote(track, getChannel(track.toString()), note, pause, duration);
+    protected void addNote(TrackCursor track, int note, long pause, long duration) throws InvalidMidiDataException {
+        addNote(track, getChannel(track), note, pause, duration);
     }
 
-    protected void addNote(Track track, int channel, int note, long pause, long duration)
+    protected void addNote(TrackCursor track, int channel, int note, long pause, long duration)
             throws InvalidMidiDataException {
         //****  note on ****
-        ShortMessage shortMessage = new ShortMessage();
-        shortMessage.setMessage(ShortMessage.NOTE_ON, channel, note, 0x60);
-        MidiEvent midiEvent = new MidiEvent(shortMessage, addTrackTicks(track.toString(), pause));
-        track.add(midiEvent);
+        track.getEvents().addChannelMessage(addTrackTicks(track, pause), ShortMessage.NOTE_ON, channel, note, 0x60);
 
         //****  note off  ****
-        shortMessage = new ShortMessage();
-        shortMessage.setMessage(ShortMessage.NOTE_OFF, channel, note, 0x40);
-        midiEvent = new MidiEvent(shortMessage, addTrackTicks(track.toString(), duration));
-        track.add(midiEvent);
+        track.getEvents().addChannelMessage(addTrackTicks(track, duration), ShortMessage.NOTE_OFF, channel, note, 0x40);
     }
 
-    protected void nameTrack(Track track, String trackName) throws InvalidMidiDataException {
-        MetaMessage metaMessage = new MetaMessage();
-        metaMessage.setMessage(0x03, trackName.getBytes(), trackName.length());
-        track.add(new MidiEvent(metaMessage, (long) 0));
+    protected void nameTrack(TrackCursor track, String trackName) throws InvalidMidiDataException {
+        track.getEvents().addMetaMessage(0, 0x03, trackName.getBytes());
     }
 
-    protected void configureTrack(Track track) throws InvalidMidiDataException {
-        MidiEvent midiEvent;//****  set omni on  ****
-        ShortMessage shortMessage = new ShortMessage();
-        shortMessage.setMessage(0xB0, 0x7D, 0x00);
-        midiEvent = new MidiEvent(shortMessage, (long) 0);
-        track.add(midiEvent);
+    protected void configureTrack(TrackCursor track) throws InvalidMidiDataException {
+        //****  set omni on  ****
+        track.getEvents().addShortMessage(0, 0xB0, 0x7D, 0x00);
 
         //****  set poly on  ****
-        shortMessage = new ShortMessage();
-        shortMessage.setMessage(0xB0, 0x7F, 0x00);
-        midiEvent = new MidiEvent(shortMessage, (long) 0);
-        track.add(midiEvent);
+        track.getEvents().addShortMessage(0, 0xB0, 0x7F, 0x00);
     }
 
-    protected void setVoice(Track track, int voiceNumber) throws InvalidMidiDataException {
-        setVoice(track, getChannel(track.toString()), voiceNumber);
+    protected void setVoice(TrackCursor track, int voiceNumber) throws InvalidMidiDataException {
+        setVoice(track, getChannel(track), voiceNumber);
     }
 
-    protected void setVoice(Track track, int channel, int voiceNumber) throws InvalidMidiDataException {
-        ShortMessage shortMessage = new ShortMessage();
-        shortMessage.setMessage(0xC0, channel, voiceNumber, 0x0);
-        track.add(new MidiEvent(shortMessage, (long) 0));
+    protected void setVoice(TrackCursor track, int channel, int voiceNumber) throws InvalidMidiDataException {
+        track.getEvents().addChannelMessage(0, 0xC0, channel, voiceNumber, 0x0);
     }
 
-    protected void endTrack(Track track) throws InvalidMidiDataException {
+    protected void endTrack(TrackCursor track) throws InvalidMidiDataException {
         endTrack(track, 0l);
     }
 
-    protected void endTrack(Track track, long delay) throws InvalidMidiDataException {
-        MetaMessage metaMessage = new MetaMessage();
-        byte[] bet = {}; // empty array
-        metaMessage.setMessage(0x2F, bet, 0);
-        track.add(new MidiEvent(metaMessage, addTrackTicks(track.toString(), delay)));
+    protected void endTrack(TrackCursor track, long delay) throws InvalidMidiDataException {
+        track.getEvents().endTrack(addTrackTicks(track, delay));
     }
 
-    private void configureTempo(Track track) throws InvalidMidiDataException {
-        MidiEvent midiEvent;//****  set tempo (meta event)  ****
-        MetaMessage metaMessage = new MetaMessage();
+    private void configureTempo(TrackCursor track) throws InvalidMidiDataException {
+        //****  set tempo (meta event)  ****
         byte[] tempoBytes = {0x02, (byte) 0x00, 0x00};
-        metaMessage.setMessage(0x51, tempoBytes, 3);
-        midiEvent = new MidiEvent(metaMessage, (long) 0);
-        track.add(midiEvent);
+        track.getEvents().addMetaMessage(0, 0x51, tempoBytes);
     }
 
-    private void enableGeneralMidi(Track track) throws InvalidMidiDataException {
+    private void enableGeneralMidi(TrackCursor track) throws InvalidMidiDataException {
         //****  General MIDI sysex -- turn on General MIDI sound set  ****
         byte[] generalMidiBytes = {(byte) 0xF0, 0x7E, 0x7F, 0x09, 0x01, (byte) 0xF7};
-        SysexMessage sysexMessage = new SysexMessage();
-        sysexMessage.setMessage(generalMidiBytes, generalMidiBytes.length);
-        MidiEvent midiEvent = new MidiEvent(sysexMessage, (long) 0);
-        track.add(midiEvent);
+        track.getEvents().addSysexMessage(0, generalMidiBytes);
     }
 
-    private int saveSequence(OutputStream theOutputStream, Sequence sequence) throws IOException {
-        return MidiSystem.write(sequence, 1, theOutputStream);
+    private int saveSequence(OutputStream theOutputStream, GenerationContext context)
+            throws IOException, InvalidMidiDataException {
+        return context.write(theOutputStream);
     }
 
-    private Sequence buildSequence() throws InvalidMidiDataException {
-        return new Sequence(Sequence.PPQ, 24);
+    private GenerationContext buildContext() {
+        return new GenerationContext(RESOLUTION);
     }
 
 }
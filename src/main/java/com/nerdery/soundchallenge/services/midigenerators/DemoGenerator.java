@@ -5,8 +5,6 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.Sequence;
-import javax.sound.midi.Track;
 import java.util.Random;
 
 /**
@@ -17,10 +15,10 @@ import java.util.Random;
 public class DemoGenerator extends AbstractMidiGenerator {
 
     @Override
-    protected void addNotes(Sequence sequence) throws InvalidMidiDataException {
-        Track trebleTrack = buildTrack(sequence, "Treble Track");
+    protected void addNotes(GenerationContext context) throws InvalidMidiDataException {
+        TrackCursor trebleTrack = buildTrack(context, "Treble Track");
         setVoice(trebleTrack, FLUTE_VOICE);
-        Track bassTrack = buildTrack(sequence, "Treble Track");
+        TrackCursor bassTrack = buildTrack(context, "Treble Track");
         setVoice(bassTrack, FLUTE_VOICE);
 
         addNote(bassTrack, MIDDLE_C - 12, QUARTER_TICKS * 4);
@@ -53,10 +51,10 @@ public class DemoGenerator extends AbstractMidiGenerator {
         endTrack(trebleTrack);
         endTrack(bassTrack);
 
-        Track fluteTrack = buildTrack(sequence, "Epic Solo Not Flute Drop");
+        TrackCursor fluteTrack = buildTrack(context, "Epic Solo Not Flute Drop");
         setVoice(fluteTrack, FLUTE_VOICE);
 
-        addTrackTicks(fluteTrack.toString(), getTrackTicks(trebleTrack.toString()));
+        addTrackTicks(fluteTrack, getTrackTicks(trebleTrack));
         new Random().ints(-12, 12).limit(40).forEach(note -> {
             try {
                 addNote(fluteTrack, MIDDLE_C + note, QUARTER_TICKS);
@@ -73,4 +71,9 @@ public class DemoGenerator extends AbstractMidiGenerator {
         return "demo";
     }
 
+    @Override
+    public boolean isDeterministic() {
+        return false;
+    }
+
 }
@@ -0,0 +1,177 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import com.nerdery.soundchallenge.midi.MidiEventBuffer;
+import com.nerdery.soundchallenge.midi.MidiFileWriter;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * GenerationContext holds all of the mutable state for a single call to {@link MidiGenerator#generateSong}. A new
+ * context is created for every call, so one generator instance can serve any number of concurrent requests without
+ * locking.
+ *
+ * Songs are written with {@link MidiFileWriter}. Setting the {@code nerdsound.javaSoundWriter} system property writes
+ * them through {@link MidiSystem} instead, which produces the same bytes and is kept around for comparison.
+ *
+ * Tracks are independent of each other, so their notes can be written concurrently. With the
+ * {@code nerdsound.parallelTracks} system property set, each {@link #writeTrack(TrackWriter)} runs on a fork/join
+ * pool of its own, and {@link #awaitTracks()} joins them. The pool has as many threads as there are processors, or
+ * {@code nerdsound.parallelTracks.threads}, and is kept apart from the common pool so that track writing neither
+ * starves nor is starved by the audio renderer and parallel streams. Tracks are created on the calling thread, so the
+ * finished file always lists them in the order they were created. The {@code parallelTracksTest} task checks that
+ * songs written this way are the same bytes as songs written on one thread.
+ *
+ * A {@link GenerationObserver} is told how long the tracks took, from the context's creation until
+ * {@link #awaitTracks()} returns, and how long {@link #write(OutputStream)} took to encode them.
+ */
+public class GenerationContext {
+
+    public static final boolean USE_JAVA_SOUND_WRITER = Boolean.getBoolean("nerdsound.javaSoundWriter");
+    public static final boolean PARALLEL_TRACKS = Boolean.getBoolean("nerdsound.parallelTracks");
+
+    private final int resolution;
+    private final boolean parallel;
+    private final List<MidiEventBuffer> tracks = new ArrayList<>();
+    private final List<TrackTask> pendingTracks = new ArrayList<>();
+    private final long createdNanos = System.nanoTime();
+    private GenerationObserver observer = GenerationObserver.NONE;
+
+    public GenerationContext(int resolution) {
+        this(resolution, PARALLEL_TRACKS);
+    }
+
+    public GenerationContext(int resolution, boolean parallel) {
+        this.resolution = resolution;
+        this.parallel = parallel;
+    }
+
+    public int getResolution() {
+        return resolution;
+    }
+
+    public void setObserver(GenerationObserver theObserver) {
+        observer = theObserver;
+    }
+
+    public List<MidiEventBuffer> getTracks() {
+        return Collections.unmodifiableList(tracks);
+    }
+
+    public MidiEventBuffer createTrack() {
+        MidiEventBuffer track = new MidiEventBuffer();
+        tracks.add(track);
+        return track;
+    }
+
+    public TrackCursor createTrack(int channel) {
+        return new TrackCursor(createTrack(), channel);
+    }
+
+    /**
+     * Fills in a track that has already been created. The writer must only touch its own track.
+     */
+    public void writeTrack(TrackWriter writer) throws InvalidMidiDataException {
+        if (parallel) {
+            TrackTask task = new TrackTask(writer);
+            pendingTracks.add(task);
+            TrackPool.POOL.execute(task);
+        } else {
+            writer.write();
+        }
+    }
+
+    /**
+     * Waits for every track passed to {@link #writeTrack(TrackWriter)} to finish, rethrowing the first failure.
+     */
+    public void awaitTracks() throws InvalidMidiDataException {
+        InvalidMidiDataException failure = null;
+        for (TrackTask task : pendingTracks) {
+            task.join();
+            if (failure == null) {
+                failure = task.failure;
+            }
+        }
+        pendingTracks.clear();
+        if (failure != null) {
+            throw failure;
+        }
+        if (observer != GenerationObserver.NONE) {
+            int events = 0;
+            for (MidiEventBuffer track : tracks) {
+                events += track.size();
+            }
+            observer.generated(System.nanoTime() - createdNanos, events);
+        }
+    }
+
+    public int write(OutputStream outputStream) throws IOException, InvalidMidiDataException {
+        long start = System.nanoTime();
+        int bytes = USE_JAVA_SOUND_WRITER ? writeWithJavaSound(outputStream) : writeDirect(outputStream);
+        observer.encoded(System.nanoTime() - start, bytes);
+        return bytes;
+    }
+
+    public int writeDirect(OutputStream outputStream) throws IOException {
+        return new MidiFileWriter().write(outputStream, resolution, tracks);
+    }
+
+    public int writeWithJavaSound(OutputStream outputStream) throws IOException, InvalidMidiDataException {
+        return MidiSystem.write(toSequence(), 1, outputStream);
+    }
+
+    public Sequence toSequence() throws InvalidMidiDataException {
+        Sequence sequence = new Sequence(Sequence.PPQ, resolution);
+        for (MidiEventBuffer track : tracks) {
+            track.copyTo(sequence.createTrack());
+        }
+        return sequence;
+    }
+
+    @FunctionalInterface
+    public interface TrackWriter {
+        void write() throws InvalidMidiDataException;
+    }
+
+    private static final class TrackPool {
+        static final ForkJoinPool POOL = new ForkJoinPool(
+                Integer.getInteger("nerdsound.parallelTracks.threads", Runtime.getRuntime().availableProcessors()),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("track-writer-" + thread.getPoolIndex());
+                    return thread;
+                }, null, false);
+
+        private TrackPool() {
+        }
+    }
+
+    private static class TrackTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TrackWriter writer;
+        private InvalidMidiDataException failure;
+
+        TrackTask(TrackWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                writer.write();
+            } catch (InvalidMidiDataException e) {
+                failure = e;
+            }
+        }
+    }
+}
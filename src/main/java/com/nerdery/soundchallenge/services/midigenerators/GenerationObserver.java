@@ -0,0 +1,48 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+/**
+ * Is told how long each phase of a song's generation took: building its tracks, and encoding them as a Standard MIDI
+ * File. Calls come from the thread generating the song, and one observer may watch many songs at once.
+ */
+public interface GenerationObserver {
+
+    GenerationObserver NONE = new GenerationObserver() {
+        @Override
+        public void generated(long nanos, int events) {
+        }
+
+        @Override
+        public void encoded(long nanos, int bytes) {
+        }
+    };
+
+    /**
+     * The tracks are finished, with {@code events} events between them.
+     */
+    void generated(long nanos, int events);
+
+    /**
+     * The file has been written, {@code bytes} bytes long.
+     */
+    void encoded(long nanos, int bytes);
+
+    /**
+     * An observer that tells both this one and {@code other}.
+     */
+    default GenerationObserver and(GenerationObserver other) {
+        GenerationObserver first = this;
+        return new GenerationObserver() {
+            @Override
+            public void generated(long nanos, int events) {
+                first.generated(nanos, events);
+                other.generated(nanos, events);
+            }
+
+            @Override
+            public void encoded(long nanos, int bytes) {
+                first.encoded(nanos, bytes);
+                other.encoded(nanos, bytes);
+            }
+        };
+    }
+}
@@ -6,10 +6,7 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
 import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.Sequence;
-import javax.sound.midi.Track;
 
 /**
  * Created by floater on 7/16/15.
@@ -23,17 +20,16 @@ public class JasonGenerator extends AbstractMidiGenerator {
     private static final int[] scaleDown = ScaleReference.PENTATONIC.getDegrees().clone();
     private static final int tempo = 20;
 
-    @PostConstruct
-    public void init() {
-        // scaleDown needs to be reversed
+    static {
+        // scaleDown needs to be reversed, once: this bean is a prototype, so reversing it per instance flipped it back
         ArrayUtils.reverse(scaleDown);
     }
 
     @Override
-    protected void addNotes(Sequence sequence) throws InvalidMidiDataException {
+    protected void addNotes(GenerationContext context) throws InvalidMidiDataException {
 
 
-        Track myTrack = buildTrack(sequence, "Pentatonic Track");
+        TrackCursor myTrack = buildTrack(context, "Pentatonic Track");
         setVoice(myTrack, 30);
 
         for (int reps = 0; reps < 15; reps++) {
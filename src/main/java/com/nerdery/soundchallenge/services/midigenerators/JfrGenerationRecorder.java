@@ -0,0 +1,39 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The {@link GenerationRecorder} for JVMs with the {@code jdk.jfr} API. Only created by reflection, so that nothing
+ * else refers to the API.
+ */
+class JfrGenerationRecorder extends GenerationRecorder {
+
+    @Override
+    public Phase begin(String generator, String phase) {
+        GenerationPhaseEvent event = new GenerationPhaseEvent();
+        if (!event.isEnabled()) {
+            return Phase.NONE;
+        }
+        event.generator = generator;
+        event.phase = phase;
+        event.begin();
+        return event::commit;
+    }
+
+    @Name("com.nerdery.soundchallenge.GenerationPhase")
+    @Label("Generation Phase")
+    @Category("NerdSound")
+    @Description("A phase of generating a song: building its tracks, or encoding them as a MIDI file")
+    static class GenerationPhaseEvent extends Event {
+
+        @Label("Generator")
+        String generator;
+
+        @Label("Phase")
+        String phase;
+    }
+}
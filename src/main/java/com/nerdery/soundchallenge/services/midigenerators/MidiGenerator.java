@@ -14,4 +14,23 @@ public interface MidiGenerator {
     String getName();
 
     void generateSong(OutputStream theOutputStream) throws IOException, InvalidMidiDataException;
+
+    /**
+     * Generates a song, telling {@code observer} how long each phase took. Generators that can't tell their phases
+     * apart report the whole call as generation.
+     */
+    default void generateSong(OutputStream theOutputStream, GenerationObserver observer)
+            throws IOException, InvalidMidiDataException {
+        long start = System.nanoTime();
+        generateSong(theOutputStream);
+        observer.generated(System.nanoTime() - start, 0);
+    }
+
+    /**
+     * Whether every call to {@link #generateSong(OutputStream)} produces the same bytes. Only deterministic songs are
+     * kept in the render cache.
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
 }
@@ -0,0 +1,123 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NoteScore holds the notes of a song, read from a text resource on the classpath. The score is split into named
+ * parts, and each part is flattened into an array of {@code (note, pause, duration)} triples so that a generator can
+ * play it with a single loop over {@link AbstractMidiGenerator#addNote}.
+ *
+ * A score file looks like this:
+ * <pre>
+ * # comments run to the end of the line
+ * part Melody
+ *     16 0 16
+ *     repeat 3
+ *         7 8 32
+ *     end
+ * </pre>
+ */
+public class NoteScore {
+
+    private final Map<String, int[]> parts;
+
+    private NoteScore(Map<String, int[]> parts) {
+        this.parts = Collections.unmodifiableMap(parts);
+    }
+
+    /**
+     * The notes of a part, as consecutive {@code note, pause, duration} entries.
+     */
+    public int[] getPart(String name) {
+        int[] notes = parts.get(name);
+        if (notes == null) {
+            throw new IllegalArgumentException("No part named " + name);
+        }
+        return notes;
+    }
+
+    public static NoteScore load(String resourceName) {
+        try (InputStream inputStream = NoteScore.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing score resource " + resourceName);
+            }
+            return parse(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)), resourceName);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read score resource " + resourceName, e);
+        }
+    }
+
+    private static NoteScore parse(BufferedReader reader, String resourceName) throws IOException {
+        Map<String, int[]> parts = new HashMap<>();
+        String partName = null;
+        Deque<List<Integer>> blocks = new ArrayDeque<>();
+        Deque<Integer> repeats = new ArrayDeque<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String[] tokens = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+
+            try {
+                if (tokens[0].equals("part")) {
+                    if (partName != null) {
+                        parts.put(partName, finishPart(blocks, repeats));
+                    }
+                    partName = tokens[1];
+                    blocks.push(new ArrayList<>());
+                } else if (partName == null) {
+                    throw new IllegalStateException("notes must be inside a part");
+                } else if (tokens[0].equals("repeat")) {
+                    repeats.push(Integer.parseInt(tokens[1]));
+                    blocks.push(new ArrayList<>());
+                } else if (tokens[0].equals("end")) {
+                    if (repeats.isEmpty()) {
+                        throw new IllegalStateException("end without repeat");
+                    }
+                    List<Integer> body = blocks.pop();
+                    int times = repeats.pop();
+                    for (int i = 0; i < times; i++) {
+                        blocks.peek().addAll(body);
+                    }
+                } else if (tokens.length == 3) {
+                    for (String token : tokens) {
+                        blocks.peek().add(Integer.parseInt(token));
+                    }
+                } else {
+                    throw new IllegalStateException("expected <note> <pause> <duration>");
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalStateException(
+                        String.format("Invalid score %s at line %d: %s", resourceName, lineNumber, line.trim()), e);
+            }
+        }
+
+        if (partName != null) {
+            parts.put(partName, finishPart(blocks, repeats));
+        }
+        return new NoteScore(parts);
+    }
+
+    private static int[] finishPart(Deque<List<Integer>> blocks, Deque<Integer> repeats) {
+        if (!repeats.isEmpty()) {
+            throw new IllegalStateException("repeat without end");
+        }
+        return blocks.pop().stream().mapToInt(Integer::intValue).toArray();
+    }
+}
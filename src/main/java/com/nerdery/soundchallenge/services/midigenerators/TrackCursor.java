@@ -0,0 +1,42 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import com.nerdery.soundchallenge.midi.MidiEventBuffer;
+
+/**
+ * A track being written by a generator, along with the channel its notes play on and the tick that the next note
+ * will be placed after.
+ */
+public class TrackCursor {
+
+    private static final long INITIAL_TICKS = 1L;
+
+    private final MidiEventBuffer events;
+    private final int channel;
+    private long ticks = INITIAL_TICKS;
+
+    TrackCursor(MidiEventBuffer events, int channel) {
+        this.events = events;
+        this.channel = channel;
+    }
+
+    public MidiEventBuffer getEvents() {
+        return events;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long addTicks(long addedTicks) {
+        ticks += addedTicks;
+        return ticks;
+    }
+
+    public void resetTicks() {
+        ticks = INITIAL_TICKS;
+    }
+}
@@ -0,0 +1,21 @@
+package com.nerdery.soundchallenge.midi
+
+import java.util.OptionalInt
+
+import org.springframework.stereotype.Component
+
+/**
+ * Looks voices up among the patches named in [[GeneralMidiVoices]].
+ */
+@Component
+class GeneralMidiVoiceCatalog extends VoiceCatalog {
+  private val patches: Map[String, Int] = GeneralMidiVoices.getClass.getDeclaredMethods.toSeq
+    .filter(method => method.getParameterCount == 0 && method.getReturnType == classOf[Int])
+    .map(method => normalize(method.getName) -> method.invoke(GeneralMidiVoices).asInstanceOf[Int])
+    .toMap
+
+  override def findPatch(name: String): OptionalInt =
+    patches.get(normalize(name)).map(OptionalInt.of).getOrElse(OptionalInt.empty())
+
+  private def normalize(name: String) = name.toLowerCase.replaceAll("[^a-z0-9]", "")
+}
@@ -1,7 +1,5 @@
 package com.nerdery.soundchallenge.services.midigenerators
 
-import javax.sound.midi.Sequence
-
 import com.nerdery.soundchallenge.services.midigenerators.dsl.Key._
 import com.nerdery.soundchallenge.services.midigenerators.dsl.Interval._
 import com.nerdery.soundchallenge.services.midigenerators.dsl.Duration._
@@ -53,8 +51,8 @@ class SuperMarioMidiGenerator extends DslMidiGenerator {
 
   override def getName: String = "jmullinSuperMario"
 
-  override def generate(implicit sequence: Sequence): Unit = {
-    track("melody", SynthBass1, tempo) { implicit t =>
+  override def generate(implicit score: ScoreBuilder): Unit = {
+    track("melody", SynthBass1, tempo) {
       SequentialRun(
         intro,
         aSection repeat 2,
@@ -67,7 +65,7 @@ class SuperMarioMidiGenerator extends DslMidiGenerator {
       )
     }
 
-    percussionTrack("percussion", tempo) { implicit t =>
+    percussionTrack("percussion", tempo) {
       SequentialRun(
         percussionABSection repeatFill intro,
         percussionABSection repeatFill aSection repeat 2,
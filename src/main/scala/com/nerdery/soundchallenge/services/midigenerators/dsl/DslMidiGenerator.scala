@@ -1,6 +1,6 @@
 package com.nerdery.soundchallenge.services.midigenerators.dsl
 
-import javax.sound.midi.{Sequence, Track}
+import com.nerdery.soundchallenge.services.midigenerators.GenerationContext
 
 /**
  *
@@ -9,35 +9,53 @@ import javax.sound.midi.{Sequence, Track}
  * Exposes a little Scala DSL for MIDI composition.  See SuperMarioMidiGenerator for an
  * example of the DSL in action.
  *
+ * The song is declared once, on the first request, and compiled into a NoteTable per track.  Every request after
+ * that just writes the frozen tables out.
+ *
  */
 trait DslMidiGenerator extends FreeformMidiGenerator {
   implicit def intToKey(i: Int) = Key(i, 0)
 
   override def getName: String
 
-  override def build(sequence: Sequence): Unit = {
-    generate(sequence)
+  lazy val compiledScore: Seq[CompiledTrack] = {
+    val score = new ScoreBuilder
+    generate(score)
+    score.result()
   }
 
-  def generate(implicit sequence: Sequence): Unit
-
-  def track(name: String, voice: Int, tempo: Int, channel: Int=0)(build: Track => Run)(implicit sequence: Sequence): Unit = {
-    implicit val newTrack = buildTrack(sequence, name, tempo)
-    setVoice(newTrack, voice)
-    
-    val run = build(newTrack)
-    for(NoteEvent(tick, note) <- run.expand(0)) {
-      add(tick, note, channel)
+  override def build(context: GenerationContext): Unit = {
+    for(compiledTrack <- compiledScore) {
+      write(context, compiledTrack)
     }
+  }
+
+  def generate(implicit score: ScoreBuilder): Unit
 
-    endTrack(newTrack)
+  def track(name: String, voice: Int, tempo: Int, channel: Int=0)(build: => Run)(implicit score: ScoreBuilder): Unit = {
+    score.add(name, voice, tempo, channel, build)
   }
 
-  def percussionTrack(name: String, tempo: Int)(build: Track => Run)(implicit sequence: Sequence): Unit = {
+  def percussionTrack(name: String, tempo: Int)(build: => Run)(implicit score: ScoreBuilder): Unit = {
     track(name, 0, tempo, 9)(build)
   }
 
-  def add(tick: Long, note: Note, channel: Int)(implicit track: Track): Unit = {
-    addNote(track, tick, note.key.value, channel, 0x70, note.duration.ticks)
+  def write(context: GenerationContext, compiledTrack: CompiledTrack): Unit = {
+    val newTrack = buildTrack(context, compiledTrack.name, compiledTrack.tempo)
+
+    context.writeTrack(new GenerationContext.TrackWriter {
+      override def write(): Unit = {
+        setVoice(newTrack, compiledTrack.voice)
+
+        val notes = compiledTrack.notes
+        var i = 0
+        while(i < notes.size) {
+          addNote(newTrack, notes.tick(i), notes.key(i), compiledTrack.channel, 0x70, notes.duration(i))
+          i += 1
+        }
+
+        endTrack(newTrack)
+      }
+    })
   }
-}
\ No newline at end of file
+}
@@ -1,9 +1,10 @@
 package com.nerdery.soundchallenge.services.midigenerators.dsl
 
 import java.io.OutputStream
-import javax.sound.midi._
 
 import com.nerdery.soundchallenge.midi.MidiCommands._
+import com.nerdery.soundchallenge.midi.MidiEventBuffer
+import com.nerdery.soundchallenge.services.midigenerators.{GenerationContext, GenerationObserver, GenerationRecorder}
 import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator
 
 /**
@@ -11,16 +12,29 @@ import com.nerdery.soundchallenge.services.midigenerators.MidiGenerator
  *
  * Forked from AbstractMidiGenerator to allow some more flexibility in generation.
  *
+ * Tracks are written into MidiEventBuffers owned by a per-call GenerationContext, which encodes the finished file.
+ *
  */
 abstract class FreeformMidiGenerator extends MidiGenerator {
   def generateSong(outputStream: OutputStream) {
-    val sequence = buildSequence()
-    build(sequence)
-    saveSequence(outputStream, sequence)
+    generateSong(outputStream, GenerationObserver.NONE)
+  }
+
+  override def generateSong(outputStream: OutputStream, observer: GenerationObserver) {
+    val generating = GenerationRecorder.get().begin(getName, "generate")
+    val context = buildContext()
+    context.setObserver(observer)
+    build(context)
+    context.awaitTracks()
+    generating.end()
+
+    val encoding = GenerationRecorder.get().begin(getName, "encode")
+    saveSequence(outputStream, context)
+    encoding.end()
   }
 
-  def buildTrack(sequence: Sequence, trackName: String, tempo: Int) = {
-    val track = sequence.createTrack
+  def buildTrack(context: GenerationContext, trackName: String, tempo: Int) = {
+    val track = context.createTrack()
     enableGeneralMidi(track)
     configureTempo(track, tempo)
     nameTrack(track, trackName)
@@ -28,70 +42,53 @@ abstract class FreeformMidiGenerator extends MidiGenerator {
     track
   }
 
-  def build(sequence: Sequence)
+  def build(context: GenerationContext)
 
-  def addNote(track: Track, tick: Long, note: Int, channel: Int, velocity: Int, duration: Long) {
+  def addNote(track: MidiEventBuffer, tick: Long, note: Int, channel: Int, velocity: Int, duration: Long) {
     addChannelEvent(track, NoteOn, channel, note, velocity, tick)
     addChannelEvent(track, NoteOn, channel, note, 0, tick+duration)
   }
 
-  def configureTrack(track: Track) {
+  def configureTrack(track: MidiEventBuffer) {
     addSimpleEvent(track, ControlChange, ControlCommands.OmniOn, 0)
     addSimpleEvent(track, ControlChange, ControlCommands.PolyOn, 0)
   }
 
-  def setVoice(track: Track, voiceNumber: Int) {
+  def setVoice(track: MidiEventBuffer, voiceNumber: Int) {
     addSimpleEvent(track, ProgramChange, voiceNumber, 0)
   }
 
-  def nameTrack(track: Track, trackName: String) {
-    val metaMessage = new MetaMessage
-    metaMessage.setMessage(0x03, trackName.getBytes, trackName.length)
-    track.add(new MidiEvent(metaMessage, 0))
+  def nameTrack(track: MidiEventBuffer, trackName: String) {
+    track.addMetaMessage(0, 0x03, trackName.getBytes)
   }
 
-  def endTrack(track: Track) {
-    val metaMessage = new MetaMessage
-    val bet = Array[Byte]()
-    metaMessage.setMessage(0x2F, bet, 0)
-    track.add(new MidiEvent(metaMessage, 140))
+  def endTrack(track: MidiEventBuffer) {
+    track.endTrack(140)
   }
 
-  def configureTempo(track: Track, bpm: Int) {
-    val metaMessage = new MetaMessage
+  def configureTempo(track: MidiEventBuffer, bpm: Int) {
     val tempoBytes = BigInt(60000000/bpm).toByteArray
-    metaMessage.setMessage(0x51, tempoBytes, tempoBytes.length)
-    track.add(new MidiEvent(metaMessage, 0))
+    track.addMetaMessage(0, 0x51, tempoBytes)
   }
 
-  def enableGeneralMidi(track: Track) {
+  def enableGeneralMidi(track: MidiEventBuffer) {
     val generalMidiBytes = Array(0xF0, 0x7E, 0x7F, 0x09, 0x01, 0xF7).map(_.toByte)
-    val sysexMessage = new SysexMessage
-    sysexMessage.setMessage(generalMidiBytes, generalMidiBytes.length)
-    track.add(new MidiEvent(sysexMessage, 0.asInstanceOf[Long]))
+    track.addSysexMessage(0, generalMidiBytes)
   }
 
-  def addSimpleEvent(track: Track, status: Int, data1: Int, data2: Int, tick: Long=0) {
-    val message = new ShortMessage
-    message.setMessage(status, data1, data2)
-
-    val event = new MidiEvent(message, tick)
-    track.add(event)
+  def addSimpleEvent(track: MidiEventBuffer, status: Int, data1: Int, data2: Int, tick: Long=0) {
+    track.addShortMessage(tick, status, data1, data2)
   }
 
-  def addChannelEvent(track: Track, command: Int, channel: Int, data1: Int, data2: Int, tick: Long=0) {
-    val message = new ShortMessage
-    message.setMessage(command, channel, data1, data2)
-
-    val event = new MidiEvent(message, tick)
-    track.add(event)
+  def addChannelEvent(track: MidiEventBuffer, command: Int, channel: Int, data1: Int, data2: Int, tick: Long=0) {
+    track.addChannelMessage(tick, command, channel, data1, data2)
   }
 
-  def saveSequence(theOutputStream: OutputStream, sequence: Sequence): Int = {
-    MidiSystem.write(sequence, 1, theOutputStream)
+  def saveSequence(theOutputStream: OutputStream, context: GenerationContext): Int = {
+    context.write(theOutputStream)
   }
 
-  def buildSequence() = new Sequence(Sequence.PPQ, FreeformMidiGenerator.Resolution)
+  def buildContext() = new GenerationContext(FreeformMidiGenerator.Resolution)
 }
 
 object FreeformMidiGenerator {
@@ -0,0 +1,105 @@
+package com.nerdery.soundchallenge.services.midigenerators.dsl
+
+import scala.collection.mutable
+
+/**
+ * A frozen, columnar list of note events: parallel arrays of start tick, key and duration, in the order the notes
+ * appear in the run they were compiled from
+ */
+final class NoteTable private(ticks: Array[Long], keys: Array[Int], durations: Array[Long]) {
+  def size = ticks.length
+
+  def tick(i: Int) = ticks(i)
+  def key(i: Int) = keys(i)
+  def duration(i: Int) = durations(i)
+}
+
+object NoteTable {
+  val Empty = new NoteTable(Array.emptyLongArray, Array.emptyIntArray, Array.emptyLongArray)
+
+  def compile(run: Run): NoteTable = new RunCompiler().compile(run)
+
+  class Builder {
+    private var ticks = new Array[Long](16)
+    private var keys = new Array[Int](16)
+    private var durations = new Array[Long](16)
+    private var size = 0
+
+    def add(tick: Long, key: Int, duration: Long): Unit = {
+      ensureCapacity(1)
+      ticks(size) = tick
+      keys(size) = key
+      durations(size) = duration
+      size += 1
+    }
+
+    def append(table: NoteTable, offset: Long): Unit = {
+      ensureCapacity(table.size)
+      var i = 0
+      while(i < table.size) {
+        ticks(size + i) = table.tick(i) + offset
+        keys(size + i) = table.key(i)
+        durations(size + i) = table.duration(i)
+        i += 1
+      }
+      size += table.size
+    }
+
+    def result() = new NoteTable(ticks.take(size), keys.take(size), durations.take(size))
+
+    private def ensureCapacity(added: Int): Unit = {
+      if(size + added > ticks.length) {
+        val capacity = math.max(ticks.length * 2, size + added)
+        ticks = java.util.Arrays.copyOf(ticks, capacity)
+        keys = java.util.Arrays.copyOf(keys, capacity)
+        durations = java.util.Arrays.copyOf(durations, capacity)
+      }
+    }
+  }
+}
+
+/**
+ * Compiles runs into note tables. Runs are case classes, so structurally identical subtrees (every
+ * percussionABSection, every repeat of the same section) are compiled once and then copied in at an offset.
+ */
+class RunCompiler {
+  private val compiled = mutable.HashMap[Run, NoteTable]()
+
+  def compile(run: Run): NoteTable = run match {
+    case Note(key, duration) =>
+      val builder = new NoteTable.Builder
+      builder.add(0, key.value, duration.ticks)
+      builder.result()
+    case Rest(_) =>
+      NoteTable.Empty
+    case _ =>
+      compiled.get(run) match {
+        case Some(table) => table
+        case None =>
+          val table = compileChildren(run)
+          compiled(run) = table
+          table
+      }
+  }
+
+  private def compileChildren(run: Run): NoteTable = {
+    val builder = new NoteTable.Builder
+    run match {
+      case SequentialRun(runs @ _*) =>
+        var tick = 0L
+        for(child <- runs) {
+          builder.append(compile(child), tick)
+          tick += child.length
+        }
+      case ParallelRun(runs @ _*) =>
+        for(child <- runs) {
+          builder.append(compile(child), 0)
+        }
+      case _ =>
+        run.foreachNote(0, new NoteVisitor {
+          override def visit(tick: Long, note: Note) = builder.add(tick, note.key.value, note.duration.ticks)
+        })
+    }
+    builder.result()
+  }
+}
@@ -0,0 +1,8 @@
+package com.nerdery.soundchallenge.services.midigenerators.dsl
+
+/**
+ * Receives the notes of a run, in order, as the run is walked
+ */
+trait NoteVisitor {
+  def visit(tick: Long, note: Note): Unit
+}
@@ -4,9 +4,21 @@ package com.nerdery.soundchallenge.services.midigenerators.dsl
  * A run is a container which can be expanded to a set of note events
  */
 trait Run {
-  def expand(start: Long): Seq[NoteEvent]
+  /**
+   * Walks the run in a single pass, handing each note and its start tick to the visitor without building any
+   * intermediate collections
+   */
+  def foreachNote(start: Long, visitor: NoteVisitor): Unit
   def length: Long
 
+  def expand(start: Long): Seq[NoteEvent] = {
+    val expanded = Vector.newBuilder[NoteEvent]
+    foreachNote(start, new NoteVisitor {
+      override def visit(tick: Long, note: Note) = expanded += NoteEvent(tick, note)
+    })
+    expanded.result()
+  }
+
   def repeat(times: Int) = new SequentialRun(List.fill(times)(this):_*)
   def repeatFill(other: Run) = repeat(other.length.toInt / length.toInt)
 }
@@ -15,35 +27,25 @@ trait Run {
  * A sequential run contains one or more sub-runs which will play one after another
  */
 case class SequentialRun(runs: Run*) extends Run {
-  override def expand(start: Long) = {
-    var expanded = Seq[NoteEvent]()
+  override def foreachNote(start: Long, visitor: NoteVisitor) = {
     var tick = start
 
     for(run <- runs) {
-      expanded ++= run.expand(tick)
+      run.foreachNote(tick, visitor)
       tick += run.length
     }
-
-    expanded
   }
-  override def length = runs.map(_.length).sum
+  override lazy val length = runs.map(_.length).sum
 }
 
 /**
  * A parallel run contains one or more sub-runs which will play simultaneously
  */
 case class ParallelRun(runs: Run*) extends Run {
-  override def expand(start: Long) = {
-    var expanded = Seq[NoteEvent]()
-
+  override def foreachNote(start: Long, visitor: NoteVisitor) = {
     for(run <- runs) {
-      expanded ++= run.expand(start)
+      run.foreachNote(start, visitor)
     }
-
-    expanded
   }
-  override def length = runs.map(_.length).max
+  override lazy val length = runs.map(_.length).max
 }
-
-
-
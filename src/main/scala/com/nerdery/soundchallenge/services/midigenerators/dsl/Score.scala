@@ -0,0 +1,21 @@
+package com.nerdery.soundchallenge.services.midigenerators.dsl
+
+/**
+ * One track of a compiled DSL song
+ */
+case class CompiledTrack(name: String, voice: Int, tempo: Int, channel: Int, notes: NoteTable)
+
+/**
+ * Collects the tracks of a DSL song as it is declared, compiling each track's run into a NoteTable.  Subtrees shared
+ * between tracks are only compiled once.
+ */
+class ScoreBuilder {
+  private val compiler = new RunCompiler
+  private val tracks = Vector.newBuilder[CompiledTrack]
+
+  def add(name: String, voice: Int, tempo: Int, channel: Int, run: Run): Unit = {
+    tracks += CompiledTrack(name, voice, tempo, channel, compiler.compile(run))
+  }
+
+  def result(): Seq[CompiledTrack] = tracks.result()
+}
@@ -0,0 +1,52 @@
+package com.nerdery.soundchallenge.cache;
+
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that songs mapped from a segment the store deletes don't stay in the cache, where they would be sent from a
+ * file that is gone.
+ */
+public class RenderStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deletingASegmentDropsItsSongsFromTheCache() throws Exception {
+        RenderCache cache = new RenderCache(1 << 20, 0);
+        // every song takes a segment of its own, and two segments are all the store keeps
+        RenderStore store = new RenderStore(temporaryFolder.newFolder("store").getPath(), 1000, 1500);
+        store.setRenderCache(cache);
+        try {
+            RenderedSong first = store.put("first", new RenderedSong(new byte[600]));
+            Path firstFile = first.getFile();
+            assertNotNull(firstFile);
+            assertTrue(cache.put("first", first));
+            assertTrue(cache.put("second", store.put("second", new RenderedSong(new byte[600]))));
+
+            store.put("third", new RenderedSong(new byte[600]));
+            assertFalse(Files.exists(firstFile));
+            assertNull(store.get("first"));
+            assertNull(cache.peek("first"));
+            assertNotNull(cache.peek("second"));
+            assertEquals(600, cache.getWeightedSize());
+
+            assertFalse("a song from a deleted segment isn't cached again", cache.put("first", first));
+            assertNull(cache.peek("first"));
+        } finally {
+            store.close();
+        }
+    }
+}
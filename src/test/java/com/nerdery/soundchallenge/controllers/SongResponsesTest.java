@@ -0,0 +1,120 @@
+package com.nerdery.soundchallenge.controllers;
+
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Sends a song of the bytes 0 to 99 with all kinds of {@code Range} headers.
+ */
+public class SongResponsesTest {
+
+    private static final RenderedSong SONG = new RenderedSong(bytes(0, 100));
+
+    @Test
+    public void withoutARangeTheWholeSongIsSent() throws Exception {
+        assertWhole(send(SONG, null, null));
+    }
+
+    @Test
+    public void aClosedRangeSendsThoseBytes() throws Exception {
+        assertPartial(send(SONG, "bytes=10-19", null), 10, 20);
+    }
+
+    @Test
+    public void aSuffixRangeSendsTheLastBytes() throws Exception {
+        assertPartial(send(SONG, "bytes=-10", null), 90, 100);
+        assertPartial(send(SONG, "bytes=-500", null), 0, 100);
+    }
+
+    @Test
+    public void anOpenEndedRangeSendsTheRestOfTheSong() throws Exception {
+        assertPartial(send(SONG, "bytes=95-", null), 95, 100);
+        assertPartial(send(SONG, "bytes=0-", null), 0, 100);
+    }
+
+    @Test
+    public void aRangeEndingPastTheSongStopsAtItsEnd() throws Exception {
+        assertPartial(send(SONG, "bytes=90-500", null), 90, 100);
+        assertPartial(send(SONG, "bytes=99-99999999999999999999", null), 99, 100);
+    }
+
+    @Test
+    public void aRangeStartingPastTheSongIsNotSatisfiable() throws Exception {
+        assertNotSatisfiable(send(SONG, "bytes=100-", null), 100);
+        assertNotSatisfiable(send(SONG, "bytes=150-200", null), 100);
+        assertNotSatisfiable(send(SONG, "bytes=-0", null), 100);
+    }
+
+    @Test
+    public void anInvalidRangeIsIgnored() throws Exception {
+        assertWhole(send(SONG, "bytes=5-2", null));
+        assertWhole(send(SONG, "bytes=-", null));
+        assertWhole(send(SONG, "bytes=0-9,20-29", null));
+        assertWhole(send(SONG, "lines=0-9", null));
+    }
+
+    @Test
+    public void aRangeIsOnlySentForTheVersionInIfRange() throws Exception {
+        assertPartial(send(SONG, "bytes=10-19", SONG.getETag()), 10, 20);
+        assertWhole(send(SONG, "bytes=10-19", "\"another version\""));
+    }
+
+    @Test
+    public void noRangeOfAnEmptySongIsSatisfiable() throws Exception {
+        RenderedSong empty = new RenderedSong(new byte[0]);
+        MockHttpServletResponse response = send(empty, null, null);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertNotSatisfiable(send(empty, "bytes=0-", null), 0);
+        assertNotSatisfiable(send(empty, "bytes=-10", null), 0);
+    }
+
+    private static MockHttpServletResponse send(RenderedSong song, String range, String ifRange) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/midi/song.mid");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        if (ifRange != null) {
+            request.addHeader("If-Range", ifRange);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SongResponses.send(song, "audio/midi", request, response);
+        return response;
+    }
+
+    private static void assertWhole(MockHttpServletResponse response) {
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals(100, response.getContentLength());
+        assertArrayEquals(bytes(0, 100), response.getContentAsByteArray());
+    }
+
+    private static void assertPartial(MockHttpServletResponse response, int start, int end) {
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals(String.format("bytes %d-%d/100", start, end - 1), response.getHeader("Content-Range"));
+        assertEquals(end - start, response.getContentLength());
+        assertArrayEquals(bytes(start, end), response.getContentAsByteArray());
+    }
+
+    private static void assertNotSatisfiable(MockHttpServletResponse response, int length) {
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */" + length, response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private static byte[] bytes(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (start + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,153 @@
+package com.nerdery.soundchallenge.midi;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Seeks in a small song with four ticks to the beat. Its first track holds the tempo, 120 beats a minute and then
+ * 240 from tick 16, and the time signature, 4/4 and then 3/4 from tick 32. Its second track sets a program and plays
+ * notes from ticks 0 to 8, 10 to 20, 30 to 40 and 36 to 50, with a volume change at tick 24.
+ */
+public class SeekIndexTest {
+
+    private static final int RESOLUTION = 4;
+
+    private SeekIndex seekIndex;
+
+    @Before
+    public void buildSong() throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, RESOLUTION);
+        Track conductor = sequence.createTrack();
+        conductor.add(new MidiEvent(new MetaMessage(0x51, new byte[]{0x07, (byte) 0xA1, 0x20}, 3), 0));
+        conductor.add(new MidiEvent(new MetaMessage(0x58, new byte[]{4, 2, 24, 8}, 4), 0));
+        conductor.add(new MidiEvent(new MetaMessage(0x51, new byte[]{0x03, (byte) 0xD0, (byte) 0x90}, 3), 16));
+        conductor.add(new MidiEvent(new MetaMessage(0x58, new byte[]{3, 2, 24, 8}, 4), 32));
+
+        Track notes = sequence.createTrack();
+        notes.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, 0, 5, 0), 0));
+        addNote(notes, 60, 0, 8);
+        addNote(notes, 62, 10, 20);
+        notes.add(new MidiEvent(new ShortMessage(ShortMessage.CONTROL_CHANGE, 0, 7, 100), 24));
+        addNote(notes, 64, 30, 40);
+        addNote(notes, 65, 36, 50);
+
+        seekIndex = new SeekIndex(sequence);
+    }
+
+    @Test
+    public void seekingAtTheStartOfANoteRestoresNothing() throws Exception {
+        assertEquals(Arrays.asList("0 C0 5 0", "0 90 62 100", "10 80 62 0", "14 B0 7 100", "20 90 64 100",
+                "26 90 65 100", "30 80 64 0", "40 80 65 0"), describe(seekIndex.seek(10).get(1)));
+    }
+
+    @Test
+    public void seekingInsideANoteRestoresItsNoteOn() throws Exception {
+        MidiEventBuffer notes = seekIndex.seek(12).get(1);
+        assertEquals(Arrays.asList("0 C0 5 0", "0 90 62 100", "8 80 62 0", "12 B0 7 100", "18 90 64 100",
+                "24 90 65 100", "28 80 64 0", "38 80 65 0"), describe(notes));
+        assertEquals(38, notes.getEndTick());
+    }
+
+    @Test
+    public void seekingAtTheEndOfANoteLeavesOutItsNoteOff() throws Exception {
+        assertEquals(Arrays.asList("0 C0 5 0", "4 B0 7 100", "10 90 64 100", "16 90 65 100", "20 80 64 0",
+                "30 80 65 0"), describe(seekIndex.seek(20).get(1)));
+    }
+
+    @Test
+    public void seekingPastTheEndOfANoteRestoresOnlyTheOthers() throws Exception {
+        assertEquals(Arrays.asList("0 C0 5 0", "0 B0 7 100", "0 90 64 100", "0 90 65 100", "2 80 64 0",
+                "12 80 65 0"), describe(seekIndex.seek(38).get(1)));
+    }
+
+    @Test
+    public void seekingPastTheEndOfTheSongKeepsOnlyTheState() throws Exception {
+        List<MidiEventBuffer> tracks = seekIndex.seek(60);
+        assertEquals(Arrays.asList("0 C0 5 0", "0 B0 7 100"), describe(tracks.get(1)));
+        assertEquals(0, tracks.get(1).getEndTick());
+        assertEquals(4, describe(tracks.get(0)).size());
+    }
+
+    @Test
+    public void tempoAndSignatureChangesBeforeTheSeekMoveToItsStart() throws Exception {
+        assertEquals(Arrays.asList("0 FF 51 07A120", "0 FF 58 04021808", "4 FF 51 03D090", "20 FF 58 03021808"),
+                describe(seekIndex.seek(12).get(0)));
+        assertEquals(Arrays.asList("0 FF 51 07A120", "0 FF 58 04021808", "0 FF 51 03D090", "8 FF 58 03021808"),
+                describe(seekIndex.seek(24).get(0)));
+        assertEquals(Arrays.asList("0 FF 51 07A120", "0 FF 58 04021808", "0 FF 51 03D090", "0 FF 58 03021808"),
+                describe(seekIndex.seek(40).get(0)));
+    }
+
+    @Test
+    public void barsFollowTheTimeSignature() {
+        assertEquals(0, seekIndex.toTick(SongPosition.parse("0bars")));
+        assertEquals(16, seekIndex.toTick(SongPosition.parse("1bar")));
+        assertEquals(32, seekIndex.toTick(SongPosition.parse("2bars")));
+        assertEquals(44, seekIndex.toTick(SongPosition.parse("3bars")));
+        assertEquals(56, seekIndex.toTick(SongPosition.parse("4bars")));
+    }
+
+    @Test
+    public void millisecondsFollowTheTempo() {
+        assertEquals(8, seekIndex.toTick(SongPosition.parse("1000ms")));
+        assertEquals(16, seekIndex.toTick(SongPosition.parse("2000ms")));
+        assertEquals(24, seekIndex.toTick(SongPosition.parse("2500ms")));
+        assertEquals(7, seekIndex.toTick(SongPosition.parse("7t")));
+    }
+
+    @Test
+    public void everyNoteOffMatchesANoteOnBeforeIt() throws Exception {
+        for (long tick = 0; tick <= 52; tick++) {
+            for (MidiEventBuffer track : seekIndex.seek(tick)) {
+                int[] soundingNotes = new int[16 * 128];
+                for (int i = 0; i < track.size(); i++) {
+                    int command = track.getStatus(i) & 0xF0;
+                    int key = (track.getStatus(i) & 0x0F) * 128 + track.getData1(i);
+                    if (command == ShortMessage.NOTE_ON && track.getData2(i) > 0) {
+                        soundingNotes[key]++;
+                    } else if (command == ShortMessage.NOTE_ON || command == ShortMessage.NOTE_OFF) {
+                        assertTrue("unmatched note off seeking to " + tick, soundingNotes[key] > 0);
+                        soundingNotes[key]--;
+                    }
+                }
+                for (int sounding : soundingNotes) {
+                    assertEquals("note left sounding seeking to " + tick, 0, sounding);
+                }
+            }
+        }
+    }
+
+    private static void addNote(Track track, int key, long on, long off) throws Exception {
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, key, 100), on));
+        track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, key, 0), off));
+    }
+
+    private static List<String> describe(MidiEventBuffer track) {
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < track.size(); i++) {
+            if (track.getStatus(i) == MetaMessage.META) {
+                StringBuilder data = new StringBuilder();
+                for (byte b : track.getData(i)) {
+                    data.append(String.format("%02X", b));
+                }
+                events.add(String.format("%d FF %02X %s", track.getTick(i), track.getData1(i), data));
+            } else {
+                events.add(String.format("%d %02X %d %d", track.getTick(i), track.getStatus(i), track.getData1(i),
+                        track.getData2(i)));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,75 @@
+package com.nerdery.soundchallenge.services;
+
+import com.nerdery.soundchallenge.cache.RenderStore;
+import com.nerdery.soundchallenge.models.RenderedSong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that the fingerprint in render store keys covers the scores the generators read, so that editing a score
+ * misses the songs stored for the old one instead of serving them under a strong ETag.
+ */
+public class RenderFingerprintTest {
+
+    private static final String SCORE = "scores/mario.score";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void changingAScoreMissesTheStoredSong() throws Exception {
+        ClassLoader classLoader = RenderFingerprintTest.class.getClassLoader();
+        String fingerprint = fingerprint(classLoader);
+        assertEquals("the fingerprint depends on nothing but the class path", fingerprint, fingerprint(classLoader));
+
+        File storeDirectory = temporaryFolder.newFolder("store");
+        RenderStore store = new RenderStore(storeDirectory.getPath(), 1 << 20, 1 << 24);
+        try {
+            store.put("midi/mario@" + fingerprint, new RenderedSong(new byte[]{1, 2, 3}));
+
+            String changedFingerprint;
+            try (URLClassLoader changedClassLoader = new URLClassLoader(new URL[]{changedScore().toUri().toURL()},
+                    classLoader)) {
+                changedFingerprint = fingerprint(changedClassLoader);
+            }
+            assertNotEquals(fingerprint, changedFingerprint);
+            assertNull(store.get("midi/mario@" + changedFingerprint));
+            assertNotNull(store.get("midi/mario@" + fingerprint));
+        } finally {
+            store.close();
+        }
+    }
+
+    private static String fingerprint(ClassLoader classLoader) throws Exception {
+        return RenderStore.fingerprint(classLoader, MidiService.RENDERING_CODE, MidiService.RENDERING_LIBRARIES);
+    }
+
+    /**
+     * A class path directory holding a copy of the score with one more note in it.
+     */
+    private Path changedScore() throws Exception {
+        Path root = temporaryFolder.newFolder("classes").toPath();
+        Path score = root.resolve(SCORE);
+        Files.createDirectories(score.getParent());
+        try (InputStream original = RenderFingerprintTest.class.getClassLoader().getResourceAsStream(SCORE)) {
+            String text = StreamUtils.copyToString(original, StandardCharsets.UTF_8);
+            Files.write(score, (text + "    12 8 16\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return root;
+    }
+}
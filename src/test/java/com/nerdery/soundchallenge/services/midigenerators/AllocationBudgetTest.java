@@ -0,0 +1,101 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import javax.sound.midi.InvalidMidiDataException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that no generator allocates more per song than its budget in {@code allocation-budgets.properties}, so that
+ * a change which quietly doubles the garbage made by each uncached {@code /midi/{name}.mid} request fails. Allocation
+ * depends on the JDK, so on any Java release but the one the budgets were measured on the test is skipped.
+ *
+ * Each generator is warmed up, so that the JIT has done its escape analysis, and then run in a few rounds on this
+ * thread; the lowest average of {@code getThreadAllocatedBytes} over a round is taken as its allocation per song.
+ */
+@RunWith(Parameterized.class)
+public class AllocationBudgetTest {
+
+    private static final String BUDGETS = "/allocation-budgets.properties";
+    private static final int WARMUP_SONGS = 2000;
+    private static final int ROUNDS = 5;
+    private static final int ROUND_SONGS = 100;
+
+    private static Properties budgets;
+
+    private final String name;
+    private final MidiGenerator generator;
+
+    public AllocationBudgetTest(String name, MidiGenerator generator) {
+        this.name = name;
+        this.generator = generator;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> generators() {
+        Collection<Object[]> generators = new ArrayList<>();
+        for (MidiGenerator generator : RegisteredGenerators.all().values()) {
+            generators.add(new Object[]{generator.getName(), generator});
+        }
+        return generators;
+    }
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        try (InputStream budgetStream = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            budgets.load(budgetStream);
+        }
+        String measuredOnJava = budgets.getProperty("measuredOnJava");
+        String thisJava = System.getProperty("java.specification.version");
+        Assume.assumeTrue("the budgets were measured on Java " + measuredOnJava + ", not " + thisJava,
+                measuredOnJava.equals(thisJava));
+    }
+
+    @Test
+    public void allocatesWithinItsBudget() throws IOException, InvalidMidiDataException {
+        String budget = budgets.getProperty(name);
+        assertNotNull(name + " has no budget in " + BUDGETS, budget);
+        long limit = Long.parseLong(budget.trim());
+
+        long allocated = measure(generator);
+        assertTrue(String.format("%s allocated %,d bytes per song, over its budget of %,d bytes", name, allocated,
+                limit), allocated <= limit);
+    }
+
+    private static long measure(MidiGenerator generator) throws IOException, InvalidMidiDataException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1 << 16);
+        for (int i = 0; i < WARMUP_SONGS; i++) {
+            outputStream.reset();
+            generator.generateSong(outputStream);
+        }
+
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ROUND_SONGS; i++) {
+                outputStream.reset();
+                generator.generateSong(outputStream);
+            }
+            lowest = Math.min(lowest, (threads.getThreadAllocatedBytes(threadId) - before) / ROUND_SONGS);
+        }
+        return lowest;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Renders every deterministic generator from many threads at once and checks each song is byte for byte the song a
+ * single thread renders, so that shared mutable state in a generator, its score or the encoder shows up as a failure
+ * instead of as a corrupt file in the render cache.
+ *
+ * It then soaks the generators in rounds of concurrent renders and checks that the heap in use after a full GC stays
+ * flat, so that state which outlives a song, such as tick positions kept per track in a generator, shows up too.
+ */
+public class GeneratorConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int SONGS_PER_THREAD = 50;
+    private static final int SOAK_WARMUP_ROUNDS = 2;
+    private static final int SOAK_ROUNDS = 10;
+    private static final int SOAK_SONGS_PER_ROUND = 1000;
+    private static final long SOAK_MAX_GROWTH_BYTES = 2L << 20;
+
+    @Test
+    public void concurrentRendersMatchASingleThreadedRender() throws Exception {
+        List<MidiGenerator> generators = RegisteredGenerators.deterministic();
+        assertFalse("no deterministic generators were found", generators.isEmpty());
+
+        for (MidiGenerator generator : generators) {
+            byte[] expected = RegisteredGenerators.render(generator);
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<byte[]>>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(executor.submit((Callable<List<byte[]>>) () -> {
+                        start.await();
+                        List<byte[]> songs = new ArrayList<>();
+                        for (int j = 0; j < SONGS_PER_THREAD; j++) {
+                            songs.add(RegisteredGenerators.render(generator));
+                        }
+                        return songs;
+                    }));
+                }
+                start.countDown();
+
+                for (Future<List<byte[]>> result : results) {
+                    for (byte[] song : result.get(2, TimeUnit.MINUTES)) {
+                        assertArrayEquals(generator.getName() + " rendered differently on another thread", expected,
+                                song);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void heapStaysFlatWhileSoaking() throws Exception {
+        List<MidiGenerator> generators = RegisteredGenerators.deterministic();
+        assertFalse("no deterministic generators were found", generators.isEmpty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long baseline = 0;
+            List<Long> heapUsed = new ArrayList<>();
+            for (int round = 0; round < SOAK_WARMUP_ROUNDS + SOAK_ROUNDS; round++) {
+                List<Future<byte[]>> songs = new ArrayList<>();
+                for (int i = 0; i < SOAK_SONGS_PER_ROUND; i++) {
+                    MidiGenerator generator = generators.get(i % generators.size());
+                    songs.add(executor.submit(() -> RegisteredGenerators.render(generator)));
+                }
+                for (Future<byte[]> song : songs) {
+                    song.get(2, TimeUnit.MINUTES);
+                }
+
+                long used = heapUsedAfterGc();
+                if (round == SOAK_WARMUP_ROUNDS - 1) {
+                    baseline = used;
+                } else if (round >= SOAK_WARMUP_ROUNDS) {
+                    heapUsed.add(used);
+                }
+            }
+
+            long growth = heapUsed.get(heapUsed.size() - 1) - baseline;
+            assertTrue(String.format("heap in use grew by %,d bytes over %d rounds of %d songs: %,d bytes, then %s",
+                    growth, SOAK_ROUNDS, SOAK_SONGS_PER_ROUND, baseline, heapUsed), growth < SOAK_MAX_GROWTH_BYTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long heapUsedAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 2; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
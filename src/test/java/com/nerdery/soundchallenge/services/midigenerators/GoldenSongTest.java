@@ -0,0 +1,49 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that every deterministic generator still renders exactly the song recorded in
+ * {@code golden-songs.properties}, so that a refactoring which changes a single byte of a song fails the build.
+ */
+public class GoldenSongTest {
+
+    private static final String GOLDEN_SONGS = "/golden-songs.properties";
+
+    @Test
+    public void deterministicGeneratorsRenderTheirGoldenSongs() throws Exception {
+        Properties golden = new Properties();
+        try (InputStream goldenStream = GoldenSongTest.class.getResourceAsStream(GOLDEN_SONGS)) {
+            golden.load(goldenStream);
+        }
+
+        List<String> checked = new ArrayList<>();
+        for (MidiGenerator generator : RegisteredGenerators.deterministic()) {
+            String expected = golden.getProperty(generator.getName());
+            assertNotNull(generator.getName() + " has no golden hash in " + GOLDEN_SONGS, expected);
+            assertEquals(generator.getName() + " no longer renders its golden song", expected.trim(),
+                    sha256(RegisteredGenerators.render(generator)));
+            checked.add(generator.getName());
+        }
+        assertTrue("golden hashes for generators that are gone or no longer deterministic",
+                checked.containsAll(golden.stringPropertyNames()));
+    }
+
+    private static String sha256(byte[] song) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(song)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.nerdery.soundchallenge.services.midigenerators;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sound.midi.InvalidMidiDataException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The MIDI generators the application registers, found by scanning their package as the application context does.
+ */
+final class RegisteredGenerators {
+
+    private RegisteredGenerators() {
+    }
+
+    static Map<String, MidiGenerator> all() {
+        Map<String, MidiGenerator> generators = new TreeMap<>();
+        try (AnnotationConfigApplicationContext context =
+                     new AnnotationConfigApplicationContext(MidiGenerator.class.getPackage().getName())) {
+            for (MidiGenerator generator : context.getBeansOfType(MidiGenerator.class).values()) {
+                generators.put(generator.getName(), generator);
+            }
+        }
+        return generators;
+    }
+
+    static List<MidiGenerator> deterministic() {
+        List<MidiGenerator> generators = new ArrayList<>();
+        for (MidiGenerator generator : all().values()) {
+            if (generator.isDeterministic()) {
+                generators.add(generator);
+            }
+        }
+        return generators;
+    }
+
+    static byte[] render(MidiGenerator generator) throws IOException, InvalidMidiDataException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        generator.generateSong(outputStream);
+        return outputStream.toByteArray();
+    }
+}